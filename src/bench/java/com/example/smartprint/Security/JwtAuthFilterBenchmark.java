@@ -0,0 +1,64 @@
+package com.example.smartprint.Security;
+
+import com.example.smartprint.persistent.UserRole;
+import com.example.smartprint.repository.UserRepository;
+import com.example.smartprint.utils.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through {@link JwtAuthFilter}: token verification, principal
+ * lookup and building the security context. Token and principal are warm in their caches,
+ * as they are for a user who keeps polling the API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private JwtAuthFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secret", "smartprint-secret-key");
+        ReflectionTestUtils.setField(jwtUtils, "expirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 10_000);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findPrincipalByEmail("student@example.com"))
+                .thenReturn(Optional.of(new AuthPrincipal(1L, "student@example.com", UserRole.USER)));
+        PrincipalCache principalCache = new PrincipalCache(userRepository, 300_000, 10_000);
+
+        filter = new JwtAuthFilter(jwtUtils, principalCache, new SimpleMeterRegistry());
+        request = new MockHttpServletRequest("GET", "/api/users/me/jobs");
+        request.addHeader("Authorization", "Bearer " + jwtUtils.generateToken("student@example.com"));
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws Exception {
+        filter.doFilterInternal(request, response, NO_OP_CHAIN);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.smartprint.load;
+
+import com.example.smartprint.support.StubPrintServer;
+import com.example.smartprint.support.TestPdfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test against a running SmartPrint instance. It starts one stub print
+ * server per printer on its own loopback address (127.0.0.11, .12, ... port 5000, which
+ * is where PrintService sends jobs), registers a printer owner and users, adds the
+ * printers and then fires concurrent multi-file submissions. At the end it reports
+ * submission throughput and latency percentiles, and how long the dispatcher took to
+ * deliver everything to the stubs.
+ * <p>
+ * Start the application first, then run for example:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec@load -Dload.args="jobs=500 concurrency=32 latencyMs=200"
+ * </pre>
+ * Options (key=value): url, printers, users, jobs, concurrency, files, pages, padKb,
+ * mode (explicit|auto), latencyMs, errorRate, bytesPerSecond, readStallMs, drainSeconds,
+ * clientBytesPerSecond (upload speed per client, to model students on slow Wi-Fi).
+ */
+public class LoadDriver {
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final Map<String, String> options;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String url;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    LoadDriver(Map<String, String> options) {
+        this.options = options;
+        this.url = option("url", "http://localhost:8080");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new LoadDriver(options).run();
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(option(key, String.valueOf(defaultValue)));
+    }
+
+    void run() throws Exception {
+        int printerCount = intOption("printers", 4);
+        int userCount = intOption("users", 20);
+        int jobs = intOption("jobs", 200);
+        int concurrency = intOption("concurrency", 16);
+        int filesPerJob = intOption("files", 3);
+        boolean auto = "auto".equals(option("mode", "explicit"));
+        StubPrintServer.Behavior behavior = StubPrintServer.Behavior.NORMAL
+                .withLatencyMs(Long.parseLong(option("latencyMs", "0")))
+                .withErrorRate(Double.parseDouble(option("errorRate", "0")))
+                .withBytesPerSecond(Long.parseLong(option("bytesPerSecond", "0")))
+                .withReadStallMs(Long.parseLong(option("readStallMs", "0")));
+
+        List<StubPrintServer> stubs = new ArrayList<>();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            String ownerToken = register("owner-" + runId + "@load.test", "PRINTER_OWNER");
+            List<Long> printerIds = new ArrayList<>();
+            for (int i = 0; i < printerCount; i++) {
+                String ip = "127.0.0." + (11 + i);
+                stubs.add(new StubPrintServer(ip, 5000, behavior));
+                printerIds.add(addPrinter(ownerToken, "load-" + runId + "-" + i, ip));
+            }
+            List<String> userTokens = new ArrayList<>();
+            for (int i = 0; i < userCount; i++) {
+                userTokens.add(register("user-" + runId + "-" + i + "@load.test", "USER"));
+            }
+            System.out.printf("Set up %d stub printers (%s) and %d users against %s%n",
+                    printerCount, behavior, userCount, url);
+
+            List<Long> latenciesNanos = Collections.synchronizedList(new ArrayList<>(jobs));
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicLong uploadedBytes = new AtomicLong();
+            List<Future<?>> pending = new ArrayList<>(jobs);
+            long start = System.nanoTime();
+            for (int i = 0; i < jobs; i++) {
+                int job = i;
+                pending.add(clients.submit(() -> {
+                    Random random = ThreadLocalRandom.current();
+                    String token = userTokens.get(job % userTokens.size());
+                    Long printerId = auto ? null : printerIds.get(random.nextInt(printerIds.size()));
+                    Multipart body = submission(filesPerJob, printerId);
+                    long sent = System.nanoTime();
+                    int status;
+                    try {
+                        status = submit(token, body);
+                    } catch (IOException e) {
+                        status = -1;   // connection refused or reset counts as a rejection
+                    }
+                    latenciesNanos.add(System.nanoTime() - sent);
+                    uploadedBytes.addAndGet(body.bytes.length);
+                    if (status == 202) {
+                        accepted.incrementAndGet();
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+            double submitSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Submitted %d jobs in %.1fs: %.1f jobs/s, %.1f MB/s uploaded, %d rejected%n",
+                    jobs, submitSeconds, jobs / submitSeconds,
+                    uploadedBytes.get() / 1e6 / submitSeconds, rejected.get());
+            System.out.println("Submit latency ms: " + percentiles(latenciesNanos));
+
+            long expectedFiles = (long) accepted.get() * filesPerJob;
+            double drainSeconds = awaitDelivery(stubs, expectedFiles,
+                    Duration.ofSeconds(intOption("drainSeconds", 120)), start);
+            int delivered = stubs.stream().mapToInt(s -> s.requests() - s.failures()).sum();
+            int failed = stubs.stream().mapToInt(StubPrintServer::failures).sum();
+            System.out.printf("Delivered %d/%d files to printers (%d printer errors) %.1fs after the first submission%n",
+                    delivered, expectedFiles, failed, drainSeconds);
+            for (int i = 0; i < stubs.size(); i++) {
+                System.out.printf("  printer %d (%s): %d files, %.1f MB%n", printerIds.get(i),
+                        stubs.get(i).endpoint(), stubs.get(i).requests(), stubs.get(i).bytesReceived() / 1e6);
+            }
+        } finally {
+            clients.shutdownNow();
+            stubs.forEach(StubPrintServer::close);
+        }
+    }
+
+    private String register(String email, String role) throws IOException, InterruptedException {
+        String json = "{\"name\":\"Load Test\",\"email\":\"" + email + "\",\"password\":\"load-test\",\"role\":\""
+                + role + "\"}";
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(url + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        expectOk(response, "register " + email);
+        return response.body();
+    }
+
+    private Long addPrinter(String token, String name, String ip) throws IOException, InterruptedException {
+        String json = "{\"name\":\"" + name + "\",\"location\":\"Load lab\",\"costPerPage\":0.1,\"ipAddress\":\""
+                + ip + "\"}";
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(url + "/api/printers"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        expectOk(response, "add printer " + name);
+        Matcher id = ID.matcher(response.body());
+        if (!id.find()) {
+            throw new IllegalStateException("No printer id in response: " + response.body());
+        }
+        return Long.parseLong(id.group(1));
+    }
+
+    /**
+     * Posts on the calling thread, paced to clientBytesPerSecond if set, so each client
+     * behaves like one student's upload.
+     */
+    private int submit(String token, Multipart body) throws IOException {
+        long bytesPerSecond = Long.parseLong(option("clientBytesPerSecond", "0"));
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url + "/api/print").toURL().openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(5_000);
+            connection.setReadTimeout(120_000);
+            connection.setFixedLengthStreamingMode(body.bytes.length);
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + body.boundary);
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+            long start = System.nanoTime();
+            try (OutputStream out = connection.getOutputStream()) {
+                for (int position = 0; position < body.bytes.length; position += 1024) {
+                    if (bytesPerSecond > 0) {
+                        long aheadMs = (position * 1_000_000_000L / bytesPerSecond - (System.nanoTime() - start)) / 1_000_000;
+                        if (aheadMs > 0) {
+                            Thread.sleep(aheadMs);
+                        }
+                    }
+                    out.write(body.bytes, position, Math.min(1024, body.bytes.length - position));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Upload interrupted");
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void expectOk(HttpResponse<String> response, String what) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(what + " failed with " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private record Multipart(String boundary, byte[] bytes) {
+    }
+
+    /**
+     * A submission with distinct documents (so dedup does not short-circuit storage),
+     * each a valid PDF padded with a trailing comment to the requested size.
+     */
+    private Multipart submission(int files, Long printerId) {
+        String boundary = "load" + UUID.randomUUID().toString().replace("-", "");
+        int pages = intOption("pages", 5);
+        int padBytes = intOption("padKb", 256) * 1024;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(files * (padBytes + 4096));
+        for (int i = 0; i < files; i++) {
+            part(out, boundary, "Content-Disposition: form-data; name=\"files\"; filename=\"doc" + i + ".pdf\"\r\n"
+                    + "Content-Type: application/pdf");
+            out.writeBytes(TestPdfs.pdf(pages).getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(("% " + UUID.randomUUID() + "\n%").getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(" ".repeat(padBytes).getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        if (printerId != null) {
+            field(out, boundary, "printerId", printerId.toString());
+        }
+        field(out, boundary, "deliveryOption", "SELF_COLLECTION");
+        out.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return new Multipart(boundary, out.toByteArray());
+    }
+
+    private static void part(ByteArrayOutputStream out, String boundary, String headers) {
+        out.writeBytes(("--" + boundary + "\r\n" + headers + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void field(ByteArrayOutputStream out, String boundary, String name, String value) {
+        part(out, boundary, "Content-Disposition: form-data; name=\"" + name + "\"");
+        out.writeBytes((value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static double awaitDelivery(List<StubPrintServer> stubs, long expectedFiles, Duration timeout,
+                                        long startNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            long delivered = stubs.stream().mapToLong(s -> s.requests() - s.failures()).sum();
+            if (delivered >= expectedFiles) {
+                break;
+            }
+            Thread.sleep(200);
+        }
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    static String percentiles(List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            return "no samples";
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        return String.format("p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
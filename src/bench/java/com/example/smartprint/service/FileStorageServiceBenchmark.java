@@ -0,0 +1,66 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.repository.StoredBlobRepository;
+import com.example.smartprint.repository.UploadSessionRepository;
+import com.example.smartprint.storage.LocalBlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingesting one upload: staging it, hashing it and moving it into the blob store.
+ * The repository is a mock, so this measures disk and CPU work only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileStorageServiceBenchmark {
+    // a one-page handout and a long scanned document
+    @Param({"4096", "16777216"})
+    public int size;
+
+    private Path uploadDir;
+    private FileStorageService storage;
+    private MockMultipartFile upload;
+
+    @Setup
+    public void setup() throws Exception {
+        uploadDir = Files.createTempDirectory("smartprint-bench");
+        StoredBlobRepository blobRepository = Mockito.mock(StoredBlobRepository.class);
+        Mockito.when(blobRepository.findById(Mockito.anyString())).thenReturn(Optional.empty());
+        storage = new FileStorageService(blobRepository, Mockito.mock(UploadSessionRepository.class),
+                new LocalBlobStore(uploadDir.resolve("blobs")), new SimpleMeterRegistry(),
+                Mockito.mock(PlatformTransactionManager.class), Mockito.mock(JobLeaseService.class));
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(storage, "ioThreads", 1);
+        storage.init();
+
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        upload = new MockMultipartFile("files", "document.pdf", "application/pdf", content);
+    }
+
+    @Benchmark
+    public StoredFile storeFile() throws Exception {
+        return storage.storeFile(upload);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        storage.shutdown();
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+}
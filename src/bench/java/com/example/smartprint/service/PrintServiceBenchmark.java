@@ -0,0 +1,60 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.storage.LocalBlobStore;
+import com.example.smartprint.support.StubPrintServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.RandomAccessFile;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming one document to an in-process stub of the Raspberry Pi print endpoint.
+ * Run with -prof gc to check that allocation per call stays flat as the file grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrintServiceBenchmark {
+    @Param({"65536", "67108864"})
+    public long size;
+
+    private StubPrintServer stub;
+    private HttpClient httpClient;
+    private PrintService printService;
+    private Path file;
+
+    @Setup
+    public void setup() throws Exception {
+        stub = new StubPrintServer();
+        file = Files.createTempFile("smartprint-bench", ".pdf");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+        }
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        printService = new PrintService(httpClient, new LocalBlobStore(file.getParent()), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(printService, "readTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(printService, "minBytesPerSecond", 1024L * 1024);
+        ReflectionTestUtils.setField(printService, "maxConcurrentPerPrinter", 4);
+    }
+
+    @Benchmark
+    public long sendFile() {
+        // sendToPrinter only builds the ip:5000 endpoint and calls this once per file
+        return printService.sendFile(stub.endpoint(), file.getFileName().toString());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        httpClient.close();
+        stub.close();
+        Files.deleteIfExists(file);
+    }
+}
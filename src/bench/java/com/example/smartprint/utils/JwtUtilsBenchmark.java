@@ -0,0 +1,64 @@
+package com.example.smartprint.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification. "cached" answers repeat tokens from the verified-token
+ * cache; "uncached" runs with a cache of size zero, so every call parses and checks
+ * the signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+    private JwtUtils cached;
+    private JwtUtils uncached;
+    private String token;
+
+    @Setup
+    public void setup() {
+        cached = jwtUtils(10_000);
+        uncached = jwtUtils(0);
+        token = cached.generateToken("student@example.com");
+    }
+
+    private static JwtUtils jwtUtils(int cacheSize) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secret", "smartprint-secret-key");
+        ReflectionTestUtils.setField(jwtUtils, "expirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", cacheSize);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cached.generateToken("student@example.com");
+    }
+
+    @Benchmark
+    public boolean validateToken_cached() {
+        return cached.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validateToken_uncached() {
+        return uncached.validateToken(token);
+    }
+
+    @Benchmark
+    public String extractUsername_cached() {
+        return cached.extractUsername(token);
+    }
+
+    @Benchmark
+    public String extractUsername_uncached() {
+        return uncached.extractUsername(token);
+    }
+}
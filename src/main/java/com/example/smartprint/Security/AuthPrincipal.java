@@ -0,0 +1,9 @@
+package com.example.smartprint.Security;
+
+import com.example.smartprint.persistent.UserRole;
+
+/**
+ * The slice of a user the auth filter needs, without the printers and print jobs collections.
+ */
+public record AuthPrincipal(Long id, String email, UserRole role) {
+}
@@ -0,0 +1,98 @@
+package com.example.smartprint.Security;
+
+import com.example.smartprint.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches email -> (id, role) so authenticated requests do not read the users table.
+ * Entries expire after a TTL and the least recently used ones are evicted past the
+ * size limit; anything that writes a user must call {@link #invalidate}.
+ */
+@Component
+public class PrincipalCache {
+    private final UserRepository userRepository;
+    private final long ttlMs;
+    private final Map<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private record Entry(AuthPrincipal principal, long expiresAtMillis) {
+    }
+
+    public PrincipalCache(UserRepository userRepository,
+                          @Value("${auth.principal-cache.ttl-ms:300000}") long ttlMs,
+                          @Value("${auth.principal-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param email the verified token subject
+     * @return the principal, or empty if no such user exists
+     */
+    public Optional<AuthPrincipal> get(String email) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get(email);
+        } finally {
+            lock.unlock();
+        }
+        if (entry != null && entry.expiresAtMillis() > now) {
+            hits.incrementAndGet();
+            return Optional.of(entry.principal());
+        }
+        misses.incrementAndGet();
+        Optional<AuthPrincipal> principal = userRepository.findPrincipalByEmail(email);
+        principal.ifPresent(p -> {
+            lock.lock();
+            try {
+                entries.put(email, new Entry(p, now + ttlMs));
+            } finally {
+                lock.unlock();
+            }
+        });
+        return principal;
+    }
+
+    public void invalidate(String email) {
+        lock.lock();
+        try {
+            entries.remove(email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
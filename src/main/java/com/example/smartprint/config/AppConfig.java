@@ -1,13 +1,77 @@
 package com.example.smartprint.config;
 
+import com.example.smartprint.storage.BlobStore;
+import com.example.smartprint.storage.LocalBlobStore;
+import com.example.smartprint.storage.S3BlobStore;
+import com.example.smartprint.storage.SharedVolumeBlobStore;
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class AppConfig {
+    // Shared client for the Raspberry Pis. Dispatch workers call its blocking send on their own
+    // virtual threads; the client's selector thread and this small pool only do its internal
+    // I/O work, over keep-alive connections pooled per printer. The connect timeout keeps a
+    // powered-off Pi from stalling a dispatch.
+    @Bean(destroyMethod = "close")
+    public HttpClient printerHttpClient(@Value("${printer.http.connect-timeout-ms:3000}") int connectTimeoutMs,
+                                        @Value("${printer.http.client-threads:2}") int clientThreads) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(Executors.newFixedThreadPool(clientThreads, Thread.ofPlatform()
+                        .name("printer-http-", 0).daemon(true).factory()))
+                .build();
+    }
+
+    // Where stored documents live. Only "local" ties a job to the node that took its upload;
+    // with "shared" or "s3" any node can dispatch it. Blob keys are the same for every backend.
+    @Bean
+    public BlobStore blobStore(@Value("${file.storage.backend:local}") String backend,
+                               @Value("${file.upload-dir}") String uploadDir,
+                               @Value("${file.storage.shared.root:}") String sharedRoot,
+                               @Value("${file.storage.s3.endpoint:}") String s3Endpoint,
+                               @Value("${file.storage.s3.bucket:}") String s3Bucket,
+                               @Value("${file.storage.s3.region:us-east-1}") String s3Region,
+                               @Value("${file.storage.s3.access-key:}") String s3AccessKey,
+                               @Value("${file.storage.s3.secret-key:}") String s3SecretKey,
+                               @Value("${file.storage.s3.prefix:}") String s3Prefix,
+                               @Value("${file.storage.s3.connect-timeout-ms:3000}") int s3ConnectTimeoutMs,
+                               @Value("${file.storage.s3.request-timeout-ms:60000}") int s3RequestTimeoutMs) {
+        return switch (backend) {
+            case "local" -> new LocalBlobStore(Paths.get(uploadDir, "blobs"));
+            case "shared" -> {
+                if (sharedRoot.isBlank()) {
+                    throw new RuntimeException("file.storage.shared.root must be set for the shared backend");
+                }
+                yield new SharedVolumeBlobStore(Paths.get(sharedRoot));
+            }
+            case "s3" -> {
+                if (s3Endpoint.isBlank() || s3Bucket.isBlank()) {
+                    throw new RuntimeException("file.storage.s3.endpoint and bucket must be set for the s3 backend");
+                }
+                yield new S3BlobStore(URI.create(s3Endpoint), s3Bucket, s3Region, s3AccessKey, s3SecretKey,
+                        s3Prefix, Duration.ofMillis(s3ConnectTimeoutMs), Duration.ofMillis(s3RequestTimeoutMs));
+            }
+            default -> throw new RuntimeException("Unknown file.storage.backend: " + backend);
+        };
+    }
+
+    // Spill multipart uploads onto the same filesystem as the upload dir, so
+    // FileStorageService can move them into place instead of copying them again
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MultipartConfigElement multipartConfigElement(MultipartProperties multipartProperties,
+                                                         @Value("${file.upload-dir}") String uploadDir) {
+        multipartProperties.setLocation(Paths.get(uploadDir, ".incoming").toAbsolutePath().toString());
+        return multipartProperties.createMultipartConfig();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.example.smartprint.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for the listing endpoints, used only when {@code db.replica.urls} is set;
+ * otherwise Spring Boot's single pool is left as it is. The primary pool keeps its
+ * {@code spring.datasource.hikari.*} settings and each replica gets a pool of its own.
+ */
+@Configuration
+@ConditionalOnExpression("'${db.replica.urls:}' != ''")
+public class DataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, Environment environment,
+                                                             MeterRegistry meterRegistry,
+                                                             @Value("${db.replica.urls}") List<String> urls,
+                                                             @Value("${db.replica.username:}") String username,
+                                                             @Value("${db.replica.password:}") String password,
+                                                             @Value("${db.replica.pool-size:10}") int poolSize,
+                                                             @Value("${db.replica.connection-timeout-ms:2000}") long connectionTimeoutMs,
+                                                             @Value("${db.replica.retry-ms:10000}") long retryMs) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        primary.setMetricRegistry(meterRegistry);
+
+        List<DataSource> replicas = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.trim());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setUsername(username.isBlank() ? properties.determineUsername() : username);
+            replica.setPassword(password.isBlank() ? properties.determinePassword() : password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // a dead replica costs a read this long before it is skipped, and must not stop startup
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, retryMs);
+        Gauge.builder("smartprint.db.replicas.healthy", routing, ReplicaRoutingDataSource::healthyReplicas)
+                .register(meterRegistry);
+        FunctionCounter.builder("smartprint.db.replica.fallbacks", routing, ReplicaRoutingDataSource::primaryFallbacks)
+                .register(meterRegistry);
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
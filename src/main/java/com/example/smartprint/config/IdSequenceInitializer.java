@@ -0,0 +1,49 @@
+package com.example.smartprint.config;
+
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.repository.PrintJobRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Print job ids used to come from AUTO_INCREMENT. Before the first request, move
+ * the table generator past every id already in use so it never hands one out again.
+ */
+@Component
+public class IdSequenceInitializer {
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    private final PrintJobRepository printJobRepository;
+
+    public IdSequenceInitializer(PrintJobRepository printJobRepository) {
+        this.printJobRepository = printJobRepository;
+    }
+
+    @PostConstruct
+    public void alignPrintJobIds() {
+        Long maxId = printJobRepository.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+        // the pooled optimizer hands out (next_val - allocation size, next_val]
+        long nextVal = maxId + PrintJob.ID_ALLOCATION_SIZE + 1;
+        boolean created = printJobRepository.findIdSequenceValue(PrintJob.ID_SEQUENCE).isEmpty() && inserted(nextVal);
+        if (!created && printJobRepository.raiseIdSequence(PrintJob.ID_SEQUENCE, nextVal) == 0) {
+            return;
+        }
+        log.info("Moved the print job id sequence to {}, past existing id {}", nextVal, maxId);
+    }
+
+    // another node starting at the same time may insert the row first; it is raised instead
+    private boolean inserted(long nextVal) {
+        try {
+            printJobRepository.insertIdSequence(PrintJob.ID_SEQUENCE, nextVal);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.smartprint.config;
+
+import com.example.smartprint.Security.PrincipalCache;
+import com.example.smartprint.service.PageCountService;
+import com.example.smartprint.utils.JwtUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the hit/miss counters the caches already keep, so hit rates can be
+ * graphed as rate(hit) / rate(hit + miss) without touching the hot paths.
+ */
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public MeterBinder cacheMetrics(JwtUtils jwtUtils, PrincipalCache principalCache, PageCountService pageCountService) {
+        return registry -> {
+            FunctionCounter.builder("smartprint.cache.requests", jwtUtils, JwtUtils::cacheHits)
+                    .tags("cache", "jwt", "result", "hit").register(registry);
+            FunctionCounter.builder("smartprint.cache.requests", jwtUtils, JwtUtils::cacheMisses)
+                    .tags("cache", "jwt", "result", "miss").register(registry);
+            FunctionCounter.builder("smartprint.cache.requests", principalCache, PrincipalCache::hits)
+                    .tags("cache", "principal", "result", "hit").register(registry);
+            FunctionCounter.builder("smartprint.cache.requests", principalCache, PrincipalCache::misses)
+                    .tags("cache", "principal", "result", "miss").register(registry);
+            FunctionCounter.builder("smartprint.cache.requests", pageCountService, PageCountService::cacheHits)
+                    .tags("cache", "page-count", "result", "hit").register(registry);
+            FunctionCounter.builder("smartprint.cache.requests", pageCountService, PageCountService::cacheMisses)
+                    .tags("cache", "page-count", "result", "miss").register(registry);
+            Gauge.builder("smartprint.cache.size", principalCache, PrincipalCache::size)
+                    .tag("cache", "principal").register(registry);
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.smartprint.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Sends the read-only transactions the services declare to the read replicas, in turn,
+ * and everything else to the primary. A replica that fails to hand out a connection is
+ * skipped for {@code retryMs}; with every replica down, reads fall back to the primary.
+ * Must sit behind a {@code LazyConnectionDataSourceProxy}, so the connection is taken
+ * once the transaction is marked read-only rather than when it begins.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Spring Data wraps every repository read in a read-only transaction of its own; those stay
+    // on the primary, so code that reads a row right after writing it (leases, uploads) sees its write
+    private static final String REPOSITORY_TRANSACTION = SimpleJpaRepository.class.getName() + ".";
+
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile long downUntil;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long retryMs;
+    private final Clock clock;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong primaryFallbacks = new AtomicLong();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long retryMs) {
+        this(primary, replicas, retryMs, Clock.systemUTC());
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long retryMs, Clock clock) {
+        if (replicas.isEmpty()) {
+            throw new RuntimeException("ReplicaRoutingDataSource needs at least one replica");
+        }
+        this.primary = primary;
+        this.replicas = IntStream.range(0, replicas.size())
+                .mapToObj(i -> new Replica("replica-" + i, replicas.get(i)))
+                .toList();
+        this.retryMs = retryMs;
+        this.clock = clock;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection connection(ConnectionSource source) throws SQLException {
+        return readsFromReplica() ? replicaConnection(source) : source.open(primary);
+    }
+
+    static boolean readsFromReplica() {
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && name != null && !name.startsWith(REPOSITORY_TRANSACTION);
+    }
+
+    private Connection replicaConnection(ConnectionSource source) throws SQLException {
+        long now = clock.millis();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.downUntil > now) {
+                continue;
+            }
+            try {
+                return source.open(replica.dataSource);
+            } catch (SQLException e) {
+                replica.downUntil = now + retryMs;
+                log.warn("Read replica {} unavailable, retrying it in {}ms: {}", replica.name, retryMs, e.getMessage());
+            }
+        }
+        primaryFallbacks.incrementAndGet();
+        return source.open(primary);
+    }
+
+    /**
+     * Replicas not currently skipped after a failure.
+     */
+    public int healthyReplicas() {
+        long now = clock.millis();
+        return (int) replicas.stream().filter(replica -> replica.downUntil <= now).count();
+    }
+
+    /**
+     * Read-only transactions sent to the primary because no replica was available.
+     */
+    public long primaryFallbacks() {
+        return primaryFallbacks.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.smartprint.config;
 
 import com.example.smartprint.Security.JwtAuthFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -32,7 +34,14 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // async (event stream) and error dispatches carry no token; the request was authorized on entry,
+                        // and letting the error page through keeps statuses like 409 instead of masking them as 403
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
+                        // scraped by Prometheus without a token; keep /actuator off the public network
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        // everyone picks a printer from the list; adding printers and their job queues are for owners
+                        .requestMatchers(HttpMethod.GET, "/api/printers").authenticated()
                         .requestMatchers("/api/printers/**").hasRole("PRINTER_OWNER")
                         .anyRequest().authenticated()
                 )
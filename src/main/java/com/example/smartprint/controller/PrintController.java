@@ -1,74 +1,151 @@
 package com.example.smartprint.controller;
 
+import com.example.smartprint.dto.BulkJobRequest;
+import com.example.smartprint.dto.BulkJobResult;
+import com.example.smartprint.dto.PrintJobSummary;
 import com.example.smartprint.persistent.*;
+import com.example.smartprint.persistent.JobStatus;
 import com.example.smartprint.repository.*;
+import com.example.smartprint.service.BulkSubmissionService;
 import com.example.smartprint.service.FileStorageService;
-import com.example.smartprint.service.PrintService;
+import com.example.smartprint.service.JobEventService;
+import com.example.smartprint.service.PageCountService;
+import com.example.smartprint.service.PrinterLoadService;
+import com.example.smartprint.service.StoredFile;
+import com.example.smartprint.service.UserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.IOException;
-import java.util.Arrays;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/print")
 
 public class PrintController {
-    private final PrintService printService;
     private final FileStorageService fileStorageService;
+    private final PageCountService pageCountService;
     private final PrintJobRepository printJobRepository;
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final PrinterLoadService printerLoadService;
+    private final JobEventService jobEventService;
+    private final BulkSubmissionService bulkSubmissionService;
+    private final MeterRegistry meterRegistry;
 
-    public PrintController(PrintService printService, FileStorageService fileStorageService, PrintJobRepository printJobRepository, PrinterRepository printerRepository) {
-        this.printService = printService;
+    public PrintController(FileStorageService fileStorageService, PageCountService pageCountService, PrintJobRepository printJobRepository, PrinterRepository printerRepository, UserService userService, UserRepository userRepository, PrinterLoadService printerLoadService, JobEventService jobEventService, BulkSubmissionService bulkSubmissionService, MeterRegistry meterRegistry) {
         this.fileStorageService = fileStorageService;
+        this.pageCountService = pageCountService;
         this.printJobRepository = printJobRepository;
         this.printerRepository = printerRepository;
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.printerLoadService = printerLoadService;
+        this.jobEventService = jobEventService;
+        this.bulkSubmissionService = bulkSubmissionService;
+        this.meterRegistry = meterRegistry;
     }
 
     private final PrinterRepository printerRepository;
 
     @PostMapping
-    public ResponseEntity<?> submitPrintJob(
-            @RequestParam("files") MultipartFile[] files,
-            @RequestParam Long printerId,
-            @RequestParam DeliveryOption deliveryOption
+    public ResponseEntity<PrintJobSummary> submitPrintJob(
+            @RequestParam(value = "files", required = false) MultipartFile[] files,
+            @RequestParam(required = false) List<String> uploadIds,
+            @RequestParam(required = false) Long printerId,
+            @RequestParam DeliveryOption deliveryOption,
+            @RequestParam(required = false) String location,
+            Authentication authentication
     ) {
-        // 1. Get printer
-        Printer printer = printerRepository.findById(printerId)
-                .orElseThrow(() -> new RuntimeException("Printer not found"));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        if (files == null) {
+            files = new MultipartFile[0];
+        }
+        if (uploadIds == null) {
+            uploadIds = List.of();
+        }
+        if (files.length == 0 && uploadIds.isEmpty()) {
+            throw new RuntimeException("A print job needs files or uploadIds");
+        }
+        long uploadBytes = 0;
+        for (MultipartFile file : files) {
+            uploadBytes += file.getSize();
+        }
+        DistributionSummary.builder("smartprint.upload.size")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(uploadBytes);
 
-        // 2. Store files
-        List<String> filePaths = Arrays.stream(files)
-                .map(file -> {
-                    try {
-                        return fileStorageService.storeFile(file);
-                    } catch (IOException e) {
-                        throw new RuntimeException("File storage failed");
-                    }
-                })
-                .toList();
+        // 1. Get printer; without a printerId pick the least-loaded one (preferring the given location)
+        Printer printer = printerId != null
+                ? printerRepository.findById(printerId).orElseThrow(() -> new RuntimeException("Printer not found"))
+                : printerLoadService.selectPrinter(location);
 
-        // 3. Create print job
-        PrintJob job = new PrintJob();
-        User currentUser = null;
-        job.setUser(currentUser);
-        job.setFilePaths(filePaths);
-        job.setPrinter(printer);
-        job.setDeliveryOption(deliveryOption);
-        job.setStatus("QUEUED");
+        Long userId = userService.getPrincipal(authentication.getName()).id();
 
-        // 4. Calculate total pages (example implementation)
-        int totalPages = files.length * 2; // Replace with actual PDF page counting
-        job.setTotalPages(totalPages);
-        job.setTotalCost(printer.getCostPerPage() * totalPages);
+        // 2. Store files (in parallel, checksummed), then read the completed resumable uploads
+        List<StoredFile> uploadedFiles = fileStorageService.storeFiles(files);
+        List<String> attachedUploads = uploadIds;
+        PrintJob savedJob;
+        try {
+            List<StoredFile> storedFiles = new ArrayList<>(uploadedFiles);
+            storedFiles.addAll(fileStorageService.completedUploads(attachedUploads, userId));
+            List<String> filePaths = storedFiles.stream().map(StoredFile::key).toList();
 
-        PrintJob savedJob = printJobRepository.save(job);
+            // 3. Create print job
+            PrintJob job = new PrintJob();
+            // Reference by id from the principal cache; no users table read
+            User currentUser = userRepository.getReferenceById(userId);
+            job.setUser(currentUser);
+            job.setFilePaths(filePaths);
+            job.setPrinter(printer);
+            job.setDeliveryOption(deliveryOption);
+            job.setStatus(JobStatus.QUEUED);
+            job.setCreatedAt(Instant.now());
+            job.setNextAttemptAt(job.getCreatedAt());
 
-        // 5. Send to Raspberry Pi
-        printService.sendToPrinter(savedJob);
+            // 4. Count pages of all files and price the job
+            int totalPages = pageCountService.countStoredPages(storedFiles);
+            job.setTotalPages(totalPages);
+            job.setTotalCost(printer.getCostPerPage() * totalPages);
 
-        return ResponseEntity.ok(savedJob);
+            // 5. Persist as QUEUED, taking over the uploads in the same transaction;
+            //    PrintDispatcher sends it to the Raspberry Pi in the background
+            if (!fileStorageService.saveWithUploads(List.of(job), j -> attachedUploads,
+                    printJobRepository::saveAll).isEmpty()) {
+                throw new RuntimeException("Upload already attached to a job: " + String.join(", ", attachedUploads));
+            }
+            savedJob = job;
+            printerLoadService.jobQueued(printer.getId(), totalPages);
+            jobEventService.publish(savedJob, JobStatus.QUEUED, 0, null);
+        } catch (RuntimeException e) {
+            // the job never came to exist, so give back the references its new files took;
+            // its uploads were not consumed and stay with their sessions
+            fileStorageService.release(uploadedFiles);
+            throw e;
+        }
+
+        sample.stop(meterRegistry.timer("smartprint.submit", "mode", printerId != null ? "explicit" : "auto"));
+        return ResponseEntity.accepted().body(PrintJobSummary.of(savedJob));
+    }
+
+    /**
+     * Submit many jobs at once, e.g. a class set, from completed resumable uploads.
+     * Every job gets a result; rejected ones carry the reason instead of the job.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BulkJobResult>> submitBulk(@RequestBody List<BulkJobRequest> jobs,
+                                                          Authentication authentication) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Long userId = userService.getPrincipal(authentication.getName()).id();
+        List<BulkJobResult> results = bulkSubmissionService.submit(jobs, userId);
+        sample.stop(meterRegistry.timer("smartprint.submit", "mode", "bulk"));
+        return ResponseEntity.accepted().body(results);
     }
-}
\ No newline at end of file
+}
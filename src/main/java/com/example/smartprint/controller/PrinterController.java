@@ -1,12 +1,23 @@
 package com.example.smartprint.controller;
 
-import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.dto.JobPage;
+import com.example.smartprint.dto.PrinterView;
+import com.example.smartprint.persistent.JobStatus;
 import com.example.smartprint.persistent.Printer;
 import com.example.smartprint.service.PrinterService;
+import com.example.smartprint.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -14,23 +25,48 @@ import java.util.List;
 
 public class PrinterController {
     private final PrinterService printerService;
+    private final UserService userService;
 
-    public PrinterController(PrinterService printerService) {
+    public PrinterController(PrinterService printerService, UserService userService) {
         this.printerService = printerService;
+        this.userService = userService;
     }
 
     @PostMapping
-    public ResponseEntity<Printer> addPrinter(@RequestBody Printer printer) {
-        return ResponseEntity.ok(printerService.addPrinter(printer));
+    public ResponseEntity<Printer> addPrinter(@RequestBody Printer printer, Authentication authentication) {
+        return ResponseEntity.ok(printerService.addPrinter(printer, userId(authentication)));
     }
 
+    // clients revalidate with If-None-Match and get an empty 304 while nothing they see has changed
     @GetMapping
-    public ResponseEntity<List<Printer>> getAllPrinters() {
-        return ResponseEntity.ok(printerService.getAllPrinters());
+    public ResponseEntity<List<PrinterView>> getAllPrinters(WebRequest request) {
+        String etag = printerService.getPrintersETag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(printerService.getAllPrinters());
     }
 
     @GetMapping("/{printerId}/jobs")
-    public ResponseEntity<List<PrintJob>> getPrinterJobs(@PathVariable Long printerId) {
-        return ResponseEntity.ok(printerService.getPrinterJobs(printerId));
+    public ResponseEntity<JobPage> getPrinterJobs(
+            @PathVariable Long printerId,
+            @RequestParam(required = false) JobStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(printerService.getPrinterJobs(
+                printerId, userId(authentication), status, from, to, cursor, size));
     }
-}
\ No newline at end of file
+
+    @GetMapping(path = "/{printerId}/jobs/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrinterJobEvents(@PathVariable Long printerId, Authentication authentication) {
+        return printerService.streamPrinterJobEvents(printerId, userId(authentication));
+    }
+
+    private Long userId(Authentication authentication) {
+        return userService.getPrincipal(authentication.getName()).id();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.smartprint.controller;
+
+import com.example.smartprint.dto.UploadStatus;
+import com.example.smartprint.service.FileStorageService;
+import com.example.smartprint.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Resumable uploads for large documents: start, PUT raw chunks at the current
+ * offset, ask for the offset after a dropped connection, then complete.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+
+public class UploadController {
+    private final FileStorageService fileStorageService;
+    private final UserService userService;
+
+    public UploadController(FileStorageService fileStorageService, UserService userService) {
+        this.fileStorageService = fileStorageService;
+        this.userService = userService;
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadStatus> startUpload(@RequestParam String fileName,
+                                                    @RequestParam long size,
+                                                    Authentication authentication) throws IOException {
+        return ResponseEntity.status(HttpStatus.CREATED).body(UploadStatus.of(
+                fileStorageService.startUpload(userId(authentication), fileName, size)));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadStatus> getUpload(@PathVariable String uploadId, Authentication authentication) {
+        return ResponseEntity.ok(UploadStatus.of(fileStorageService.getUpload(uploadId, userId(authentication))));
+    }
+
+    // the body is the raw chunk, read straight from the request stream
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<UploadStatus> writeChunk(@PathVariable String uploadId,
+                                                   @RequestParam long offset,
+                                                   HttpServletRequest request,
+                                                   Authentication authentication) throws IOException {
+        return ResponseEntity.ok(UploadStatus.of(fileStorageService.writeChunk(
+                uploadId, userId(authentication), offset, request.getInputStream())));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<UploadStatus> completeUpload(@PathVariable String uploadId,
+                                                       Authentication authentication) throws IOException {
+        return ResponseEntity.ok(UploadStatus.of(fileStorageService.completeUpload(uploadId, userId(authentication))));
+    }
+
+    private Long userId(Authentication authentication) {
+        return userService.getPrincipal(authentication.getName()).id();
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.smartprint.controller;
 
-import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.dto.JobPage;
+import com.example.smartprint.persistent.JobStatus;
 import com.example.smartprint.persistent.User;
 import com.example.smartprint.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/api/users")
@@ -25,7 +29,19 @@ public class UserController {
     }
 
     @GetMapping("/my-jobs")
-    public ResponseEntity<List<PrintJob>> getUserJobs(@RequestHeader("Authorization") String token) {
-        return ResponseEntity.ok(userService.getUserJobs(token));
+    public ResponseEntity<JobPage> getUserJobs(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) JobStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(userService.getUserJobs(token, status, from, to, cursor, size));
     }
-}
\ No newline at end of file
+
+    @GetMapping(path = "/my-jobs/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserJobEvents(@RequestHeader("Authorization") String token) {
+        return userService.streamUserJobEvents(token);
+    }
+}
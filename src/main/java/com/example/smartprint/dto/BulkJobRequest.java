@@ -0,0 +1,17 @@
+package com.example.smartprint.dto;
+
+import com.example.smartprint.persistent.DeliveryOption;
+
+import java.util.List;
+
+/**
+ * One job of a bulk submission. Files are completed resumable uploads; without a
+ * printerId the least-loaded printer is chosen, preferring {@code location}.
+ */
+public record BulkJobRequest(
+        List<String> uploadIds,
+        Long printerId,
+        DeliveryOption deliveryOption,
+        String location
+) {
+}
@@ -0,0 +1,20 @@
+package com.example.smartprint.dto;
+
+/**
+ * Outcome of one job of a bulk submission, at the same {@code index} as in the
+ * request: the queued job, or why it was rejected.
+ */
+public record BulkJobResult(
+        int index,
+        PrintJobSummary job,
+        String error
+) {
+
+    public static BulkJobResult queued(int index, PrintJobSummary job) {
+        return new BulkJobResult(index, job, null);
+    }
+
+    public static BulkJobResult rejected(int index, String error) {
+        return new BulkJobResult(index, null, error);
+    }
+}
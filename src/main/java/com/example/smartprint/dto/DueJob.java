@@ -0,0 +1,16 @@
+package com.example.smartprint.dto;
+
+import com.example.smartprint.persistent.DeliveryOption;
+
+import java.time.Instant;
+
+/**
+ * What the dispatcher needs to know about a QUEUED job to decide which one to send next.
+ */
+public record DueJob(
+        Long id,
+        int totalPages,
+        DeliveryOption deliveryOption,
+        Instant createdAt
+) {
+}
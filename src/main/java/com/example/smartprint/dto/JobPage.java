@@ -0,0 +1,28 @@
+package com.example.smartprint.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated job listing. Pass {@code nextCursor} back as
+ * {@code cursor} to fetch the following page; it is null on the last page.
+ */
+public record JobPage(List<PrintJobSummary> items, Long nextCursor) {
+
+    public static final int MAX_SIZE = 100;
+
+    /**
+     * @param rows up to size + 1 rows, newest first; the extra row only signals that more exist
+     * @param size the requested page size
+     */
+    public static JobPage of(List<PrintJobSummary> rows, int size) {
+        if (rows.size() <= size) {
+            return new JobPage(rows, null);
+        }
+        List<PrintJobSummary> items = rows.subList(0, size);
+        return new JobPage(items, items.get(size - 1).id());
+    }
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+}
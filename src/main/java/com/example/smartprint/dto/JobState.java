@@ -0,0 +1,17 @@
+package com.example.smartprint.dto;
+
+import com.example.smartprint.persistent.JobStatus;
+
+/**
+ * Current status of a job someone is streaming events for, as {@code JobEventService}
+ * re-reads it to catch changes made on other nodes.
+ */
+public record JobState(
+        Long id,
+        Long userId,
+        Long printerId,
+        JobStatus status,
+        int attempts,
+        String lastError
+) {
+}
@@ -0,0 +1,19 @@
+package com.example.smartprint.dto;
+
+import com.example.smartprint.persistent.JobStatus;
+
+import java.time.Instant;
+
+/**
+ * One status transition of a print job, pushed to subscribers instead of them
+ * re-reading their job list. {@code attempts} and {@code lastError} explain retries.
+ */
+public record JobStatusEvent(
+        Long jobId,
+        JobStatus status,
+        Long printerId,
+        int attempts,
+        String lastError,
+        Instant at
+) {
+}
@@ -0,0 +1,29 @@
+package com.example.smartprint.dto;
+
+import com.example.smartprint.persistent.DeliveryOption;
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+
+import java.time.Instant;
+
+/**
+ * Flat listing view of a print job, read with a single query and without the
+ * job's file paths or the full user and printer entities.
+ */
+public record PrintJobSummary(
+        Long id,
+        JobStatus status,
+        DeliveryOption deliveryOption,
+        int totalPages,
+        double totalCost,
+        Instant createdAt,
+        Long printerId,
+        String printerName
+) {
+
+    public static PrintJobSummary of(PrintJob job) {
+        return new PrintJobSummary(job.getId(), job.getStatus(), job.getDeliveryOption(),
+                job.getTotalPages(), job.getTotalCost(), job.getCreatedAt(),
+                job.getPrinter().getId(), job.getPrinter().getName());
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.smartprint.dto;
+
+import com.example.smartprint.service.PrinterHealthService;
+
+import java.time.Instant;
+
+/**
+ * A printer as listed to clients, together with its live health from the prober.
+ */
+public record PrinterView(
+        Long id,
+        String name,
+        String location,
+        double costPerPage,
+        String ipAddress,
+        boolean batchDispatch,
+        PrinterHealthService.Status status,
+        PrinterHealthService.CircuitState circuit,
+        long latencyMs,
+        Instant checkedAt
+) {
+}
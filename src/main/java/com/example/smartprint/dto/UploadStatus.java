@@ -0,0 +1,21 @@
+package com.example.smartprint.dto;
+
+import com.example.smartprint.persistent.UploadSession;
+
+/**
+ * Where a resumable upload stands. {@code offset} is the byte position the next
+ * chunk must start at; pass {@code uploadId} to /api/print once status is COMPLETED.
+ */
+public record UploadStatus(
+        String uploadId,
+        String fileName,
+        long size,
+        long offset,
+        String status
+) {
+
+    public static UploadStatus of(UploadSession session) {
+        return new UploadStatus(session.getId(), session.getFileName(), session.getSize(),
+                session.getReceivedBytes(), session.getStatus());
+    }
+}
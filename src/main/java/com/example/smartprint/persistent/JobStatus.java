@@ -0,0 +1,34 @@
+package com.example.smartprint.persistent;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of a print job: QUEUED -> SENDING -> PRINTED, or back to QUEUED for a retry
+ * (or when a node's lease runs out), or FAILED once retries run out. PRINTED and FAILED are final.
+ */
+public enum JobStatus {
+    QUEUED, SENDING, PRINTED, FAILED;
+
+    // still waiting at, or being sent to, their printer; counted in its queue depth
+    public static final Set<JobStatus> OUTSTANDING = EnumSet.of(QUEUED, SENDING);
+
+    public boolean canMoveTo(JobStatus next) {
+        return switch (this) {
+            case QUEUED -> next == SENDING;
+            case SENDING -> next == QUEUED || next == PRINTED || next == FAILED;
+            case PRINTED, FAILED -> false;
+        };
+    }
+
+    /**
+     * @return {@code next}
+     * @throws IllegalStateException if a job in this status may not move to {@code next}
+     */
+    public JobStatus requireMoveTo(JobStatus next) {
+        if (!canMoveTo(next)) {
+            throw new IllegalStateException("A print job cannot go from " + this + " to " + next);
+        }
+        return next;
+    }
+}
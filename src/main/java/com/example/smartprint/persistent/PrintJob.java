@@ -2,15 +2,39 @@ package com.example.smartprint.persistent;
 
 import jakarta.persistence.*;
 import lombok.Data;
+
+import java.time.Instant;
 import java.util.List;
 
 @Entity
 @Data
+@Table(indexes = {
+        // keyset pagination of /my-jobs and /printers/{id}/jobs walks these newest-first
+        @Index(name = "idx_print_job_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_print_job_printer_id", columnList = "printer_id, id"),
+        // jobs of a printer or user in one status, e.g. waiting at a printer; InnoDB appends the
+        // id, so a status-filtered listing walks these newest-first too
+        @Index(name = "idx_print_job_printer_status", columnList = "printer_id, status"),
+        @Index(name = "idx_print_job_user_status", columnList = "user_id, status"),
+        // reclaiming expired leases looks for SENDING jobs by expiry
+        @Index(name = "idx_print_job_lease", columnList = "status, lease_expires_at"),
+        // covers the periodic queue depth recount: it reads only the outstanding statuses'
+        // range of this index and never touches the rows of finished jobs
+        @Index(name = "idx_print_job_status_printer_pages", columnList = "status, printer_id, total_pages")
+})
 public class PrintJob {
+    // ids come from a pooled table generator, 50 per round trip, so Hibernate can batch job inserts
+    // (IDENTITY needs each row inserted on its own to learn its id)
+    public static final int ID_ALLOCATION_SIZE = 50;
+    public static final String ID_SEQUENCE = "print_job";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "print_job_ids")
+    @TableGenerator(name = "print_job_ids", table = "id_sequence", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
+    // blob store keys; jobs from before the blob store hold absolute local paths
     @ElementCollection
     private List<String> filePaths;
 
@@ -28,9 +52,21 @@ public class PrintJob {
     @Enumerated(EnumType.STRING)
     private DeliveryOption deliveryOption;
 
-    private String status;
+    // see JobStatus; a SENDING job is leased to one node, and goes back to QUEUED if the lease runs out
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
     private int totalPages;
     private double totalCost;
+    private Instant createdAt;
+
+    // Dispatch bookkeeping, maintained by PrintDispatcher
+    private int attempts;
+    private Instant nextAttemptAt;
+    private String lastError;
+    // node dispatching the job while SENDING, and until when; see JobLeaseService
+    private String leaseOwner;
+    private Instant leaseExpiresAt;
+
     public void setFilePaths(List<String> filePaths) {
         this.filePaths = filePaths;
     }
@@ -43,8 +79,11 @@ public class PrintJob {
         this.deliveryOption = deliveryOption;
     }
 
-    public void setStatus(String status) {
-        this.status = status;
+    /**
+     * @throws IllegalStateException if the job may not move from its current status to {@code status}
+     */
+    public void setStatus(JobStatus status) {
+        this.status = this.status == null ? status : this.status.requireMoveTo(status);
     }
 
     public void setTotalPages(int totalPages) {
@@ -61,4 +100,4 @@ public class PrintJob {
     public void setTotalCost(double totalCost) {
         this.totalCost = totalCost;
     }
-}
\ No newline at end of file
+}
@@ -15,15 +15,32 @@ public class Printer {
     private String location;
     private double costPerPage;  // This enables getCostPerPage()
     private String ipAddress;
+    // the Pi accepts a whole job as one multipart POST to /print/batch
+    private boolean batchDispatch;
     @ManyToOne
     @JoinColumn(name = "owner_id")
     private User owner;
     @OneToMany(mappedBy = "printer")
     private List<PrintJob> jobs;
+    public Long getId() {
+        return this.id;
+    }
+    public String getName() {
+        return this.name;
+    }
+    public String getLocation() {
+        return this.location;
+    }
     public double getCostPerPage() {
         return this.costPerPage;
     }
     public String getIpAddress() {
         return this.ipAddress;
     }
+    public boolean isBatchDispatch() {
+        return this.batchDispatch;
+    }
+    public void setOwner(User owner) {
+        this.owner = owner;
+    }
 }
\ No newline at end of file
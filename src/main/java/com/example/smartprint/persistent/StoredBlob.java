@@ -0,0 +1,27 @@
+package com.example.smartprint.persistent;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * One unique uploaded document, stored once under its SHA-256 and shared by every
+ * print job that references it.
+ */
+@Entity
+@Data
+public class StoredBlob {
+    @Id
+    private String sha256;
+
+    // key in the blob store
+    private String path;
+    private long size;
+    // number of PrintJob.filePaths entries pointing at this blob
+    private int refCount;
+    // filled in the first time the document is counted, so re-uploads skip counting
+    private Integer pageCount;
+    private Instant createdAt;
+}
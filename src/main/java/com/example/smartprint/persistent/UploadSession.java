@@ -0,0 +1,41 @@
+package com.example.smartprint.persistent;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * A resumable upload in progress. Chunks are written in place into a partial file
+ * under the upload dir of the node that started it, so every chunk and the completion
+ * must reach that node; {@code receivedBytes} is the offset the next chunk must start at.
+ * Once complete, the document sits in the blob store and the session holds one
+ * reference to it until a print job takes it over.
+ */
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_upload_session_updated_at", columnList = "updated_at"))
+public class UploadSession {
+    // Lifecycle: OPEN -> COMPLETED, then the row is deleted when a print job attaches it or it expires
+    public static final String STATUS_OPEN = "OPEN";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    @Id
+    private String id;
+
+    private Long userId;
+    private String fileName;
+    private long size;
+    private long receivedBytes;
+    private String status;
+    // node holding the partial file (JobLeaseService.nodeId()); null for sessions from before nodes were recorded
+    private String nodeId;
+    // set on completion
+    private String sha256;
+    private String blobPath;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
@@ -1,15 +1,135 @@
 package com.example.smartprint.repository;
 
+import com.example.smartprint.dto.DueJob;
+import com.example.smartprint.dto.JobState;
+import com.example.smartprint.dto.PrintJobSummary;
+import com.example.smartprint.persistent.JobStatus;
 import com.example.smartprint.persistent.PrintJob;
 import com.example.smartprint.persistent.Printer;
 import com.example.smartprint.persistent.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface PrintJobRepository extends JpaRepository<PrintJob, Long> {
     // Change "findByUser" to "findByUser" (correct if field is named 'user')
     List<PrintJob> findByUser(User user);
 
     List<PrintJob> findByPrinter(Printer printer);
-}
\ No newline at end of file
+
+    @Query("select new com.example.smartprint.dto.PrintJobSummary(j.id, j.status, j.deliveryOption, "
+            + "j.totalPages, j.totalCost, j.createdAt, p.id, p.name) "
+            + "from PrintJob j join j.printer p where j.user.id = :userId "
+            + "and (:status is null or j.status = :status) "
+            + "and (:from is null or j.createdAt >= :from) and (:to is null or j.createdAt < :to) "
+            + "and (:cursor is null or j.id < :cursor) order by j.id desc")
+    List<PrintJobSummary> findUserJobPage(Long userId, JobStatus status, Instant from, Instant to,
+                                          Long cursor, Limit limit);
+
+    @Query("select new com.example.smartprint.dto.PrintJobSummary(j.id, j.status, j.deliveryOption, "
+            + "j.totalPages, j.totalCost, j.createdAt, p.id, p.name) "
+            + "from PrintJob j join j.printer p where p.id = :printerId "
+            + "and (:status is null or j.status = :status) "
+            + "and (:from is null or j.createdAt >= :from) and (:to is null or j.createdAt < :to) "
+            + "and (:cursor is null or j.id < :cursor) order by j.id desc")
+    List<PrintJobSummary> findPrinterJobPage(Long printerId, JobStatus status, Instant from, Instant to,
+                                             Long cursor, Limit limit);
+
+    @EntityGraph(attributePaths = {"filePaths", "printer"})
+    Optional<PrintJob> findWithFilePathsById(Long id);
+
+    // [printerId, jobs, pages] of jobs not yet finished, recounted every few seconds into the
+    // in-memory load table; answered from idx_print_job_status_printer_pages alone
+    @Query("select j.printer.id, count(j), sum(j.totalPages) from PrintJob j "
+            + "where j.status in :statuses group by j.printer.id")
+    List<Object[]> countOutstandingByPrinter(Collection<JobStatus> statuses);
+
+    /**
+     * Jobs of the given users or printers that are still outstanding, plus the listed jobs
+     * whatever their status, so a job seen outstanding is read once more after it finishes.
+     */
+    @Query("select new com.example.smartprint.dto.JobState(j.id, j.user.id, j.printer.id, j.status, "
+            + "j.attempts, j.lastError) from PrintJob j "
+            + "where (j.user.id in :userIds or j.printer.id in :printerIds) "
+            + "and (j.status in :statuses or j.id in :jobIds)")
+    List<JobState> findWatchedJobs(Collection<Long> userIds, Collection<Long> printerIds,
+                                   Collection<JobStatus> statuses, Collection<Long> jobIds);
+
+    @Query("select distinct j.printer.id from PrintJob j where j.status = :status and j.nextAttemptAt <= :now")
+    List<Long> findPrinterIdsWithDueJobs(JobStatus status, Instant now);
+
+    /**
+     * Oldest due jobs of a printer, for {@code JobScheduler} to choose from, locked until the
+     * caller's transaction ends. Rows another node has locked are skipped rather than waited for.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // -2 is Hibernate's lock timeout for SKIP LOCKED (the deprecated LockOptions.SKIP_LOCKED)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select new com.example.smartprint.dto.DueJob(j.id, j.totalPages, j.deliveryOption, j.createdAt) "
+            + "from PrintJob j where j.printer.id = :printerId and j.status = :status "
+            + "and j.nextAttemptAt <= :now order by j.id")
+    List<DueJob> lockDueJobs(Long printerId, JobStatus status, Instant now, Limit limit);
+
+    // jobs of a printer on the wire from any node; counted under the printer's dispatch lock
+    long countByPrinterIdAndStatus(Long printerId, JobStatus status);
+
+    // Compare-and-set on status so a job is only ever claimed once
+    @Modifying
+    @Transactional
+    @Query("update PrintJob j set j.status = :to, j.leaseOwner = :owner, j.leaseExpiresAt = :until "
+            + "where j.id = :id and j.status = :from")
+    int claimLease(Long id, JobStatus from, JobStatus to, String owner, Instant until);
+
+    @Modifying
+    @Transactional
+    // only the listed jobs, the ones a live worker holds; the owner and status guard against a lost lease
+    @Query("update PrintJob j set j.leaseExpiresAt = :until "
+            + "where j.id in :ids and j.leaseOwner = :owner and j.status = :status")
+    int renewLeases(Collection<Long> ids, String owner, JobStatus status, Instant until);
+
+    // jobs SENDING without a lease were left by a node from before leasing existed
+    @Modifying
+    @Transactional
+    @Query("update PrintJob j set j.status = :to, j.leaseOwner = null, j.leaseExpiresAt = null "
+            + "where j.status = :from and (j.leaseExpiresAt < :now or j.leaseExpiresAt is null)")
+    int reclaimExpiredLeases(JobStatus from, JobStatus to, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update PrintJob j set j.status = :to, j.leaseOwner = null, j.leaseExpiresAt = null "
+            + "where j.id = :id and j.status = :from and j.leaseOwner = :owner")
+    int releaseLease(Long id, String owner, JobStatus from, JobStatus to);
+
+    // only the lease holder may record the outcome; a node whose lease ran out gets 0
+    @Modifying
+    @Transactional
+    @Query("update PrintJob j set j.status = :status, j.attempts = :attempts, "
+            + "j.nextAttemptAt = :nextAttemptAt, j.lastError = :lastError, "
+            + "j.leaseOwner = null, j.leaseExpiresAt = null where j.id = :id and j.leaseOwner = :owner")
+    int recordAttempt(Long id, String owner, JobStatus status, int attempts, Instant nextAttemptAt, String lastError);
+
+    // id_sequence backs PrintJob's table generator; see IdSequenceInitializer
+    @Query("select max(j.id) from PrintJob j")
+    Long findMaxId();
+
+    @Query(value = "select next_val from id_sequence where sequence_name = :name", nativeQuery = true)
+    Optional<Long> findIdSequenceValue(String name);
+
+    @Modifying
+    @Transactional
+    @Query(value = "update id_sequence set next_val = :nextVal where sequence_name = :name and next_val < :nextVal",
+            nativeQuery = true)
+    int raiseIdSequence(String name, long nextVal);
+
+    @Modifying
+    @Transactional
+    @Query(value = "insert into id_sequence (sequence_name, next_val) values (:name, :nextVal)", nativeQuery = true)
+    int insertIdSequence(String name, long nextVal);
+}
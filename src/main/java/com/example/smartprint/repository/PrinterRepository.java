@@ -2,10 +2,30 @@ package com.example.smartprint.repository;
 
 import com.example.smartprint.persistent.Printer;
 import com.example.smartprint.persistent.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PrinterRepository extends JpaRepository<Printer, Long> {
     List<Printer> findByOwner(User owner);
+
+    boolean existsByIdAndOwnerId(Long id, Long ownerId);
+
+    boolean existsByIdAndOwnerIsNull(Long id);
+
+    /**
+     * Lock a printer's row until the caller's transaction ends, so only one node at a time
+     * claims jobs for it. Empty when another node holds the lock (or the printer is gone);
+     * -2 is Hibernate's lock timeout for SKIP LOCKED.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select p.id from Printer p where p.id = :id")
+    Optional<Long> lockForDispatch(Long id);
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.example.smartprint.repository;
+
+import com.example.smartprint.persistent.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    // Insert the blob with one reference, or add a reference if a concurrent upload got there first
+    @Modifying
+    @Transactional
+    @Query(value = "insert into stored_blob (sha256, path, size, ref_count, created_at) "
+            + "values (:sha256, :path, :size, 1, :createdAt) "
+            + "on duplicate key update ref_count = ref_count + 1", nativeQuery = true)
+    int addReference(String sha256, String path, long size, Instant createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("update StoredBlob b set b.refCount = b.refCount - 1 where b.sha256 = :sha256")
+    int removeReference(String sha256);
+
+    @Modifying
+    @Transactional
+    @Query("delete from StoredBlob b where b.sha256 = :sha256 and b.refCount <= 0")
+    int deleteIfUnreferenced(String sha256);
+
+    @Modifying
+    @Transactional
+    @Query("update StoredBlob b set b.pageCount = :pageCount where b.sha256 = :sha256")
+    int recordPageCount(String sha256, int pageCount);
+}
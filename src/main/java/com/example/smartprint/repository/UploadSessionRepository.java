@@ -0,0 +1,43 @@
+package com.example.smartprint.repository;
+
+import com.example.smartprint.persistent.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    // Move the committed offset forward, only from the offset the chunk was written at
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.receivedBytes = :receivedBytes, s.updatedAt = :now "
+            + "where s.id = :id and s.receivedBytes = :offset and s.status = 'OPEN'")
+    int advance(String id, long offset, long receivedBytes, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.status = 'COMPLETED', s.sha256 = :sha256, s.blobPath = :blobPath, "
+            + "s.updatedAt = :now where s.id = :id and s.status = 'OPEN' and s.receivedBytes = s.size")
+    int markCompleted(String id, String sha256, String blobPath, Instant now);
+
+    // Whoever deletes the row owns what it pointed at: the partial file, or the blob reference
+    @Modifying
+    @Transactional
+    @Query("delete from UploadSession s where s.id = :id and s.status = :status")
+    int deleteInStatus(String id, String status);
+
+    // Locks the sessions still in the status until the caller's transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from UploadSession s where s.id in :ids and s.status = :status")
+    List<UploadSession> lockInStatus(Collection<String> ids, String status);
+
+    List<UploadSession> findByUpdatedAtBefore(Instant cutoff, Limit limit);
+}
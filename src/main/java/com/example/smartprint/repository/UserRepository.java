@@ -1,15 +1,21 @@
 package com.example.smartprint.repository;
 
+import com.example.smartprint.Security.AuthPrincipal;
 import com.example.smartprint.persistent.PrintJob;
 import com.example.smartprint.persistent.Printer;
 import com.example.smartprint.persistent.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Single-row projection for authentication; does not touch printers or printJobs
+    @Query("select new com.example.smartprint.Security.AuthPrincipal(u.id, u.email, u.role) from User u where u.email = :email")
+    Optional<AuthPrincipal> findPrincipalByEmail(String email);
 }
 
 
@@ -1,5 +1,6 @@
 package com.example.smartprint.service;
 
+import com.example.smartprint.Security.PrincipalCache;
 import com.example.smartprint.persistent.User;
 import com.example.smartprint.repository.UserRepository;
 import com.example.smartprint.utils.JwtUtils;
@@ -14,16 +15,21 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
+    private final PrincipalCache principalCache;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtils jwtUtils) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtils jwtUtils,
+                       PrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtils = jwtUtils;
+        this.principalCache = principalCache;
     }
 
     public String register(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        userRepository.save(user);
+        User saved = userRepository.save(user);
+        // the only write to users; a cached principal for this email may carry an old id or role
+        principalCache.invalidate(saved.getEmail());
         return jwtUtils.generateToken(user.getEmail());
     }
 
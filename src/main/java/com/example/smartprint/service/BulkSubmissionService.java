@@ -0,0 +1,130 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.dto.BulkJobRequest;
+import com.example.smartprint.dto.BulkJobResult;
+import com.example.smartprint.dto.PrintJobSummary;
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.persistent.User;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import com.example.smartprint.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Submits a whole class set in one call. Each job is checked on its own and a bad
+ * one is reported without failing the rest; the good ones are saved together so
+ * Hibernate sends their rows as JDBC batches.
+ */
+@Service
+public class BulkSubmissionService {
+    private final FileStorageService fileStorageService;
+    private final PageCountService pageCountService;
+    private final PrintJobRepository printJobRepository;
+    private final PrinterRepository printerRepository;
+    private final UserRepository userRepository;
+    private final PrinterLoadService printerLoadService;
+    private final JobEventService jobEventService;
+
+    @Value("${print.bulk.max-jobs:500}")
+    private int maxJobs;
+
+    public BulkSubmissionService(FileStorageService fileStorageService, PageCountService pageCountService,
+                                 PrintJobRepository printJobRepository, PrinterRepository printerRepository,
+                                 UserRepository userRepository, PrinterLoadService printerLoadService,
+                                 JobEventService jobEventService) {
+        this.fileStorageService = fileStorageService;
+        this.pageCountService = pageCountService;
+        this.printJobRepository = printJobRepository;
+        this.printerRepository = printerRepository;
+        this.userRepository = userRepository;
+        this.printerLoadService = printerLoadService;
+        this.jobEventService = jobEventService;
+    }
+
+    private record Accepted(int index, PrintJob job, List<String> uploadIds) {
+    }
+
+    /**
+     * @return one result per requested job, in request order
+     */
+    public List<BulkJobResult> submit(List<BulkJobRequest> requests, Long userId) {
+        if (requests == null || requests.isEmpty() || requests.size() > maxJobs) {
+            throw new RuntimeException("A bulk submission takes between 1 and " + maxJobs + " jobs");
+        }
+        User user = userRepository.getReferenceById(userId);
+        Map<Long, Printer> printers = new HashMap<>();
+        BulkJobResult[] results = new BulkJobResult[requests.size()];
+        List<Accepted> accepted = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                accepted.add(prepare(i, requests.get(i), userId, user, printers));
+            } catch (RuntimeException e) {
+                results[i] = BulkJobResult.rejected(i, e.getMessage());
+            }
+        }
+
+        // the uploads are consumed in the transaction that inserts the rows, so a failed save keeps them
+        List<Accepted> leftOut;
+        try {
+            leftOut = fileStorageService.saveWithUploads(accepted, Accepted::uploadIds,
+                    jobs -> printJobRepository.saveAll(jobs.stream().map(Accepted::job).toList()));
+        } catch (RuntimeException e) {
+            for (Accepted job : accepted) {
+                printerLoadService.jobFinished(job.job().getPrinter().getId(), job.job().getTotalPages(), -1);
+            }
+            throw e;
+        }
+        for (Accepted job : leftOut) {
+            results[job.index()] = BulkJobResult.rejected(job.index(),
+                    "Upload already attached to a job: " + String.join(", ", job.uploadIds()));
+            printerLoadService.jobFinished(job.job().getPrinter().getId(), job.job().getTotalPages(), -1);
+        }
+        for (Accepted job : accepted) {
+            if (results[job.index()] == null) {
+                results[job.index()] = BulkJobResult.queued(job.index(), PrintJobSummary.of(job.job()));
+                jobEventService.publish(job.job(), JobStatus.QUEUED, 0, null);
+            }
+        }
+        return List.of(results);
+    }
+
+    // everything /api/print does for one job, short of saving it
+    private Accepted prepare(int index, BulkJobRequest request, Long userId, User user,
+                             Map<Long, Printer> printers) {
+        if (request.uploadIds() == null || request.uploadIds().isEmpty()) {
+            throw new RuntimeException("A print job needs uploadIds");
+        }
+        if (request.deliveryOption() == null) {
+            throw new RuntimeException("A print job needs a deliveryOption");
+        }
+        Printer printer = request.printerId() != null
+                ? printers.computeIfAbsent(request.printerId(), id -> printerRepository.findById(id)
+                        .orElseThrow(() -> new RuntimeException("Printer not found")))
+                : printerLoadService.selectPrinter(request.location());
+
+        List<StoredFile> storedFiles = fileStorageService.completedUploads(request.uploadIds(), userId);
+        PrintJob job = new PrintJob();
+        job.setUser(user);
+        job.setFilePaths(storedFiles.stream().map(StoredFile::key).toList());
+        job.setPrinter(printer);
+        job.setDeliveryOption(request.deliveryOption());
+        job.setStatus(JobStatus.QUEUED);
+        job.setCreatedAt(Instant.now());
+        job.setNextAttemptAt(job.getCreatedAt());
+        int totalPages = pageCountService.countStoredPages(storedFiles);
+        job.setTotalPages(totalPages);
+        job.setTotalCost(printer.getCostPerPage() * totalPages);
+        // counted right away, so auto-selection spreads the rest of the set over the fleet
+        printerLoadService.jobQueued(printer.getId(), totalPages);
+        return new Accepted(index, job, request.uploadIds());
+    }
+}
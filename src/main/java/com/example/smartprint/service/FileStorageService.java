@@ -1,28 +1,418 @@
 package com.example.smartprint.service;
 
+import com.example.smartprint.persistent.StoredBlob;
+import com.example.smartprint.persistent.UploadSession;
+import com.example.smartprint.repository.StoredBlobRepository;
+import com.example.smartprint.repository.UploadSessionRepository;
+import com.example.smartprint.storage.BlobStore;
+import com.example.smartprint.utils.ContentHash;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value; // Correct import
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Content-addressed document store. Every upload is staged on this node, hashed, and
+ * kept once in the {@link BlobStore} under <code>ab/cd/&lt;sha256&gt;</code>; identical
+ * re-uploads only add a reference to the existing blob.
+ */
 @Service
 public class FileStorageService {
     @Value("${file.upload-dir}") // Spring's @Value annotation
     private String uploadDir;
 
-    public String storeFile(MultipartFile file) throws IOException {
-        Path uploadPath = Paths.get(uploadDir);
+    // bounded so a burst of many-file jobs cannot saturate the shared disk
+    @Value("${file.storage.io-threads:4}")
+    private int ioThreads;
 
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    private Semaphore ioPermits;
+
+    @Value("${file.upload.max-bytes:4294967296}")
+    private long maxUploadBytes;
+
+    @Value("${file.upload.session-ttl-hours:24}")
+    private long uploadTtlHours;
+
+    private static final int CHUNK_BUFFER_BYTES = 64 * 1024;
+
+    private final StoredBlobRepository blobRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final BlobStore blobStore;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeaseService jobLeaseService;
+    // uploads with a chunk or completion in flight; a second writer is turned away
+    private final Set<String> activeUploads = ConcurrentHashMap.newKeySet();
+    private ExecutorService ioPool;
+
+    public FileStorageService(StoredBlobRepository blobRepository, UploadSessionRepository uploadSessionRepository,
+                              BlobStore blobStore, MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager, JobLeaseService jobLeaseService) {
+        this.blobRepository = blobRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.blobStore = blobStore;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLeaseService = jobLeaseService;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        // multipart spill directory configured in AppConfig
+        Files.createDirectories(incomingDir());
+        // one virtual thread per file; the semaphore, not a thread pool, limits concurrent disk work
+        ioPermits = new Semaphore(ioThreads);
+        ioPool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("file-io-", 0).factory());
+    }
+
+    public StoredFile storeFile(MultipartFile file) throws IOException {
+        // Moves the container's spilled part next to the store, or writes it once from memory for small parts
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Path staged = incomingDir().resolve(UUID.randomUUID() + ".part");
+        file.transferTo(staged.toFile());
+        return ingest(staged, sample);
+    }
+
+    // Hash a staged file and put it into the blob store, or drop it if the content is already there
+    private StoredFile ingest(Path staged, Timer.Sample sample) throws IOException {
+        try {
+            long size = Files.size(staged);
+            String sha256 = ContentHash.sha256(staged);
+            String key = blobKey(sha256);
+
+            Optional<StoredBlob> existing = blobRepository.findById(sha256);
+            boolean duplicate = existing.isPresent() && blobStore.exists(key);
+            if (!duplicate) {
+                blobStore.put(key, staged);
+            }
+            blobRepository.addReference(sha256, key, size, Instant.now());
+            // a release that dropped the last reference just before ours landed has deleted the blob
+            if (!blobStore.exists(key)) {
+                blobStore.put(key, staged);
+            }
+            if (duplicate) {
+                // Already stored: the existing blob just gained a reference
+                sample.stop(meterRegistry.timer("smartprint.storage", "result", "duplicate"));
+                return new StoredFile(key, size, sha256, existing.get().getPageCount());
+            }
+            sample.stop(meterRegistry.timer("smartprint.storage", "result", "new"));
+            return new StoredFile(key, size, sha256, null);
+        } finally {
+            Files.deleteIfExists(staged);
         }
+    }
 
-        String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Store all files of one job in parallel on the bounded I/O pool.
+     * If any file fails, the references already taken are released again.
+     * @return the stored files, in the order they were given
+     */
+    public List<StoredFile> storeFiles(MultipartFile[] files) {
+        List<Future<StoredFile>> pending = new ArrayList<>(files.length);
+        for (MultipartFile file : files) {
+            pending.add(ioPool.submit(() -> {
+                ioPermits.acquire();
+                try {
+                    return storeFile(file);
+                } finally {
+                    ioPermits.release();
+                }
+            }));
+        }
+        List<StoredFile> stored = new ArrayList<>(files.length);
+        RuntimeException failure = null;
+        for (Future<StoredFile> future : pending) {
+            try {
+                stored.add(future.get());
+            } catch (ExecutionException e) {
+                failure = new RuntimeException("File storage failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new RuntimeException("File storage interrupted");
+            }
+        }
+        if (failure != null) {
+            release(stored);
+            throw failure;
+        }
+        return stored;
+    }
+
+    /**
+     * Drop one reference per file; blobs nobody references any more are deleted.
+     */
+    public void release(List<StoredFile> files) {
+        for (StoredFile file : files) {
+            // the blob goes while the row is still locked, so a concurrent addReference waits for the
+            // delete and ingest then finds the blob missing and puts it back
+            transactionTemplate.executeWithoutResult(status -> {
+                blobRepository.removeReference(file.sha256());
+                if (blobRepository.deleteIfUnreferenced(file.sha256()) > 0) {
+                    try {
+                        blobStore.delete(file.key());
+                    } catch (IOException ignored) {
+                        // an orphaned blob only costs storage space
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Give back the references a finished print job held on its documents.
+     * @param keys the job's file paths, which are blob keys ending in the content hash
+     */
+    public void releaseJobFiles(List<String> keys) {
+        release(keys.stream()
+                .map(key -> new StoredFile(key, 0, key.substring(key.lastIndexOf('/') + 1), null))
+                .toList());
+    }
+
+    /**
+     * Open a resumable upload of {@code size} bytes. The client then PUTs chunks at
+     * the returned offset and can ask for the offset again after a dropped connection.
+     */
+    public UploadSession startUpload(Long userId, String fileName, long size) throws IOException {
+        if (size <= 0 || size > maxUploadBytes) {
+            throw new RuntimeException("Upload size must be between 1 and " + maxUploadBytes + " bytes");
+        }
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setFileName(fileName);
+        session.setSize(size);
+        session.setStatus(UploadSession.STATUS_OPEN);
+        session.setNodeId(jobLeaseService.nodeId());
+        session.setCreatedAt(Instant.now());
+        session.setUpdatedAt(session.getCreatedAt());
+        Files.createFile(partialPath(session.getId()));
+        return uploadSessionRepository.save(session);
+    }
+
+    public UploadSession getUpload(String uploadId, Long userId) {
+        return uploadSessionRepository.findById(uploadId)
+                .filter(session -> session.getUserId().equals(userId))
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+    }
+
+    /**
+     * Write one chunk in place at {@code offset}, streaming it through a small buffer so
+     * memory stays flat whatever the chunk size. Bytes that arrived before a dropped
+     * connection are kept, so the retry resumes from there instead of from the chunk start.
+     * @return the session with the new offset
+     */
+    public UploadSession writeChunk(String uploadId, Long userId, long offset, InputStream body) throws IOException {
+        // claim the upload before reading its offset, so two retries of one chunk cannot both pass the check
+        if (!activeUploads.add(uploadId)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload " + uploadId + " is already receiving a chunk");
+        }
+        long position = offset;
+        try {
+            UploadSession session = getUpload(uploadId, userId);
+            requireLocalPartial(session);
+            if (!UploadSession.STATUS_OPEN.equals(session.getStatus()) || offset != session.getReceivedBytes()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Upload " + uploadId + " expects offset " + session.getReceivedBytes());
+            }
+            try (FileChannel channel = FileChannel.open(partialPath(uploadId), StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BUFFER_BYTES);
+                int read;
+                while ((read = body.read(buffer.array())) != -1) {
+                    if (position + read > session.getSize()) {
+                        throw new RuntimeException("Chunk runs past the declared upload size of " + session.getSize());
+                    }
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                }
+            }
+            session.setReceivedBytes(position);
+            return session;
+        } finally {
+            if (position > offset) {
+                uploadSessionRepository.advance(uploadId, offset, position, Instant.now());
+            }
+            activeUploads.remove(uploadId);
+        }
+    }
+
+    // the partial file exists only on the node that started the upload
+    private void requireLocalPartial(UploadSession session) {
+        if (UploadSession.STATUS_OPEN.equals(session.getStatus()) && session.getNodeId() != null
+                && !session.getNodeId().equals(jobLeaseService.nodeId())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload " + session.getId()
+                    + " is being received by node " + session.getNodeId() + "; send its chunks there");
+        }
+    }
+
+    /**
+     * Put a fully received upload into the blob store. Completing twice returns the
+     * same result, so a client may retry when the first answer was lost.
+     */
+    public UploadSession completeUpload(String uploadId, Long userId) throws IOException {
+        if (!activeUploads.add(uploadId)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload " + uploadId + " is already receiving a chunk");
+        }
+        try {
+            UploadSession session = getUpload(uploadId, userId);
+            if (UploadSession.STATUS_COMPLETED.equals(session.getStatus())) {
+                return session;
+            }
+            requireLocalPartial(session);
+            if (session.getReceivedBytes() != session.getSize()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload " + uploadId + " has "
+                        + session.getReceivedBytes() + " of " + session.getSize() + " bytes");
+            }
+            StoredFile stored = ingest(partialPath(uploadId), Timer.start(meterRegistry));
+            Instant now = Instant.now();
+            if (uploadSessionRepository.markCompleted(uploadId, stored.sha256(), stored.key(), now) == 0) {
+                release(List.of(stored));
+                throw new RuntimeException("Upload " + uploadId + " changed while completing");
+            }
+            session.setStatus(UploadSession.STATUS_COMPLETED);
+            session.setSha256(stored.sha256());
+            session.setBlobPath(stored.key());
+            session.setUpdatedAt(now);
+            return session;
+        } finally {
+            activeUploads.remove(uploadId);
+        }
+    }
+
+    /**
+     * The completed uploads a print job is built from. Each session keeps its blob
+     * reference until {@link #saveWithUploads} consumes it along with the job's row.
+     * @return the stored files, in the order the ids were given
+     */
+    public List<StoredFile> completedUploads(List<String> uploadIds, Long userId) {
+        List<UploadSession> sessions = uploadIds.stream().map(id -> getUpload(id, userId)).toList();
+        List<StoredFile> files = new ArrayList<>(sessions.size());
+        for (UploadSession session : sessions) {
+            if (!UploadSession.STATUS_COMPLETED.equals(session.getStatus())) {
+                throw new RuntimeException("Upload " + session.getId() + " is not complete");
+            }
+            Integer pageCount = blobRepository.findById(session.getSha256()).map(StoredBlob::getPageCount).orElse(null);
+            files.add(new StoredFile(session.getBlobPath(), session.getSize(), session.getSha256(), pageCount));
+        }
+        return files;
+    }
+
+    /**
+     * Save print jobs and consume the upload sessions they were built from in one
+     * transaction. The blob reference each session held becomes its job's, so the content
+     * is neither copied nor counted twice, but only if the job's row commits: when the
+     * save fails every upload is still there to submit again. A job naming an upload
+     * another job consumed first, or the same upload twice, is left out.
+     * @param uploadIds the upload ids of a job
+     * @param save saves the jobs it is given
+     * @return the jobs left out, in the order given
+     */
+    public <J> List<J> saveWithUploads(List<J> jobs, Function<J, List<String>> uploadIds, Consumer<List<J>> save) {
+        return transactionTemplate.execute(status -> {
+            List<String> ids = jobs.stream().flatMap(job -> uploadIds.apply(job).stream()).toList();
+            // locked until commit, so no other submission consumes them in between
+            Set<String> available = new HashSet<>();
+            if (!ids.isEmpty()) {
+                uploadSessionRepository.lockInStatus(ids, UploadSession.STATUS_COMPLETED)
+                        .forEach(session -> available.add(session.getId()));
+            }
+            List<J> kept = new ArrayList<>(jobs.size());
+            List<J> leftOut = new ArrayList<>();
+            for (J job : jobs) {
+                List<String> jobUploads = uploadIds.apply(job);
+                if (available.containsAll(jobUploads) && Set.copyOf(jobUploads).size() == jobUploads.size()) {
+                    jobUploads.forEach(available::remove);
+                    kept.add(job);
+                } else {
+                    leftOut.add(job);
+                }
+            }
+            for (J job : kept) {
+                for (String uploadId : uploadIds.apply(job)) {
+                    if (uploadSessionRepository.deleteInStatus(uploadId, UploadSession.STATUS_COMPLETED) == 0) {
+                        throw new RuntimeException("Upload " + uploadId + " changed while attaching");
+                    }
+                }
+            }
+            save.accept(kept);
+            return leftOut;
+        });
+    }
+
+    /**
+     * Drop sessions untouched for longer than the TTL: partial files are deleted and
+     * completed but never attached uploads give back their blob reference. Any node may
+     * drop a session, so each node also deletes its own partial files older than the TTL.
+     */
+    @Scheduled(fixedDelayString = "${file.upload.sweep-interval-ms:3600000}")
+    public void expireUploads() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(uploadTtlHours));
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(cutoff, Limit.of(500))) {
+            if (uploadSessionRepository.deleteInStatus(session.getId(), session.getStatus()) == 0) {
+                continue;
+            }
+            if (UploadSession.STATUS_COMPLETED.equals(session.getStatus())) {
+                release(List.of(new StoredFile(session.getBlobPath(), session.getSize(), session.getSha256(), null)));
+            } else {
+                try {
+                    Files.deleteIfExists(partialPath(session.getId()));
+                } catch (IOException ignored) {
+                    // an orphaned partial file only costs disk space
+                }
+            }
+        }
+        try (DirectoryStream<Path> partials = Files.newDirectoryStream(incomingDir(), "*.upload")) {
+            for (Path partial : partials) {
+                if (Files.getLastModifiedTime(partial).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(partial);
+                }
+            }
+        } catch (IOException ignored) {
+            // retried on the next sweep
+        }
+    }
+
+    private Path partialPath(String uploadId) {
+        return incomingDir().resolve(uploadId + ".upload");
+    }
+
+    // Two levels of 256-way fan-out keep each directory or key prefix small as the store grows
+    static String blobKey(String sha256) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    private Path incomingDir() {
+        return Paths.get(uploadDir).toAbsolutePath().resolve(".incoming");
+    }
 
-        return filePath.toString();
+    @PreDestroy
+    public void shutdown() {
+        ioPool.shutdown();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,266 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.dto.JobState;
+import com.example.smartprint.dto.JobStatusEvent;
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-sent event channel for job status changes. Users subscribe to their own
+ * jobs, printer owners to a printer's jobs. An idle subscription is an async
+ * servlet response and holds no thread; each event is serialized once and
+ * handed to every subscriber's own outbox, so a slow client only delays itself.
+ * Changes made on this node are pushed as they happen; changes made on other nodes
+ * are found by re-reading the subscribed jobs from the database every poll interval.
+ */
+@Service
+public class JobEventService {
+    private static final Logger log = LoggerFactory.getLogger(JobEventService.class);
+
+    private final ObjectMapper objectMapper;
+    private final PrintJobRepository printJobRepository;
+    private final Map<Long, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byPrinter = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    // last status sent for each job someone is subscribed to, and when (System.nanoTime)
+    private final Map<Long, Sent> sent = new ConcurrentHashMap<>();
+    // subscriptions the previous poll already covered; jobs first seen for others were there before them
+    private volatile Set<Long> polledUsers = Set.of();
+    private volatile Set<Long> polledPrinters = Set.of();
+    private final ExecutorService sender =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-events-", 0).factory());
+
+    @Value("${print.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${print.events.max-pending:256}")
+    private int maxPending;
+
+    private record Sent(JobStatus status, int attempts, long at) {
+
+        boolean matches(JobState state) {
+            return status == state.status() && attempts == state.attempts();
+        }
+    }
+
+    public JobEventService(ObjectMapper objectMapper, PrintJobRepository printJobRepository,
+                           MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.printJobRepository = printJobRepository;
+        Gauge.builder("smartprint.events.subscribers", subscribers, AtomicInteger::get)
+                .description("Open job status event streams")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribeUser(Long userId) {
+        return subscribe(byUser, userId);
+    }
+
+    public SseEmitter subscribePrinter(Long printerId) {
+        return subscribe(byPrinter, printerId);
+    }
+
+    private SseEmitter subscribe(Map<Long, Set<Subscriber>> registry, Long key) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, registry, key);
+        registry.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscribers.incrementAndGet();
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        // flush the response headers now, so the client knows the stream is open
+        subscriber.offer(SseEmitter.event().comment("subscribed"));
+        return emitter;
+    }
+
+    /**
+     * Push a status change to the job's owner and to the printer's subscribers.
+     * Costs two map lookups when nobody is listening.
+     */
+    public void publish(PrintJob job, JobStatus status, int attempts, String lastError) {
+        // ids of lazy references are read without loading the user or printer
+        Long userId = job.getUser() != null ? job.getUser().getId() : null;
+        Long printerId = job.getPrinter() != null ? job.getPrinter().getId() : null;
+        publish(job.getId(), userId, printerId, status, attempts, lastError);
+    }
+
+    private void publish(Long jobId, Long userId, Long printerId, JobStatus status, int attempts, String lastError) {
+        Set<Subscriber> owners = userId != null ? byUser.get(userId) : null;
+        Set<Subscriber> watchers = printerId != null ? byPrinter.get(printerId) : null;
+        if (owners == null && watchers == null) {
+            return;
+        }
+        sent.put(jobId, new Sent(status, attempts, System.nanoTime()));
+        String id = String.valueOf(sequence.incrementAndGet());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(
+                    new JobStatusEvent(jobId, status, printerId, attempts, lastError, Instant.now()));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize job event", e);
+        }
+        if (owners != null) {
+            owners.forEach(s -> s.offer(event(id, json)));
+        }
+        if (watchers != null) {
+            watchers.forEach(s -> s.offer(event(id, json)));
+        }
+    }
+
+    /**
+     * Re-read the jobs of every open stream and push what changed since it was last sent,
+     * which is how changes made on other nodes arrive. A job sent from here after the read
+     * started is left alone, as this node already has newer news of it. Jobs already there
+     * when a stream opened are only noted, not sent.
+     */
+    @Scheduled(fixedDelayString = "${print.events.poll-ms:1000}")
+    public void pollChanges() {
+        Set<Long> users = Set.copyOf(byUser.keySet());
+        Set<Long> printers = Set.copyOf(byPrinter.keySet());
+        if (users.isEmpty() && printers.isEmpty()) {
+            sent.clear();
+            polledUsers = users;
+            polledPrinters = printers;
+            return;
+        }
+        long readAt = System.nanoTime();
+        List<JobState> jobs = printJobRepository.findWatchedJobs(
+                users, printers, JobStatus.OUTSTANDING, Set.copyOf(sent.keySet()));
+        Set<Long> read = new HashSet<>();
+        for (JobState job : jobs) {
+            read.add(job.id());
+            Sent last = sent.get(job.id());
+            if (last == null && !polledUsers.contains(job.userId()) && !polledPrinters.contains(job.printerId())) {
+                sent.put(job.id(), new Sent(job.status(), job.attempts(), readAt));
+            } else if (last == null || (last.at() < readAt && !last.matches(job))) {
+                publish(job.id(), job.userId(), job.printerId(), job.status(), job.attempts(), job.lastError());
+            }
+        }
+        // finished jobs have been read once more; jobs nobody streams any more are dropped
+        sent.entrySet().removeIf(entry -> entry.getValue().at() < readAt
+                && (!read.contains(entry.getKey()) || !JobStatus.OUTSTANDING.contains(entry.getValue().status())));
+        polledUsers = users;
+        polledPrinters = printers;
+    }
+
+    private static SseEmitter.SseEventBuilder event(String id, String json) {
+        return SseEmitter.event().id(id).name("job").data(json, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Comment lines keep proxies from closing idle streams and surface dead clients.
+     */
+    @Scheduled(fixedDelayString = "${print.events.heartbeat-ms:25000}")
+    public void heartbeat() {
+        byUser.values().forEach(set -> set.forEach(s -> s.offer(SseEmitter.event().comment("ping"))));
+        byPrinter.values().forEach(set -> set.forEach(s -> s.offer(SseEmitter.event().comment("ping"))));
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        byUser.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+        byPrinter.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+        sender.shutdown();
+    }
+
+    /**
+     * Per-connection outbox drained by at most one sender at a time, which keeps
+     * each client's events in publish order.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Map<Long, Set<Subscriber>> registry;
+        private final Long key;
+        private final Queue<SseEmitter.SseEventBuilder> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Map<Long, Set<Subscriber>> registry, Long key) {
+            this.emitter = emitter;
+            this.registry = registry;
+            this.key = key;
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.decrementAndGet();
+            registry.computeIfPresent(key, (k, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (pending.incrementAndGet() > maxPending) {
+                // the client stopped reading; drop it, it reloads its jobs when it reconnects
+                log.debug("Closing job event stream with {} unsent events", pending.get());
+                emitter.complete();
+                close();
+                return;
+            }
+            outbox.add(event);
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = outbox.poll()) != null) {
+                    pending.decrementAndGet();
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // the client has gone; Spring skips the emitter callbacks after a failed send
+                        emitter.completeWithError(e);
+                        close();
+                        outbox.clear();
+                        draining.set(false);
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!outbox.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+}
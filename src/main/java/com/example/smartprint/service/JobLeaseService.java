@@ -0,0 +1,160 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.dto.DueJob;
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets several SmartPrint nodes share one job table. A node claims a job by taking
+ * a lease on it, keeps renewing its leases while it dispatches, and any node hands
+ * a job whose lease ran out (its node died) back to the queue.
+ */
+@Service
+public class JobLeaseService {
+    private static final Logger log = LoggerFactory.getLogger(JobLeaseService.class);
+
+    private final PrintJobRepository printJobRepository;
+    private final PrinterRepository printerRepository;
+    private final JobScheduler jobScheduler;
+    // jobs claimed by this node and not yet settled or given back; only their leases are renewed
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // blank: host name plus a random suffix, unique per run
+    @Value("${print.dispatch.node-id:}")
+    private String nodeId;
+
+    @Value("${print.dispatch.lease-ms:120000}")
+    private long leaseMs;
+
+    // oldest due jobs per printer the scheduler chooses from
+    @Value("${print.schedule.window:200}")
+    private int scheduleWindow;
+
+    // jobs one printer may have on the wire at once, summed over every node
+    @Value("${print.dispatch.max-sending-per-printer:4}")
+    private int maxSendingPerPrinter;
+
+    public JobLeaseService(PrintJobRepository printJobRepository, PrinterRepository printerRepository,
+                           JobScheduler jobScheduler) {
+        this.printJobRepository = printJobRepository;
+        this.printerRepository = printerRepository;
+        this.jobScheduler = jobScheduler;
+    }
+
+    @PostConstruct
+    void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = "node";
+            }
+            nodeId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        log.info("Dispatching print jobs as node {}", nodeId);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Lease up to {@code capacity} due jobs of a printer to this node, in the order
+     * {@link JobScheduler} picks them, without the printer's SENDING jobs on all nodes
+     * going over the cluster-wide cap. Runs as one short transaction under the printer's
+     * row lock, taken with SKIP LOCKED: a node that finds another one claiming for the
+     * printer skips it this round instead of waiting, and never gets the same job.
+     */
+    @Transactional
+    public List<Long> claim(Long printerId, int capacity, Instant now) {
+        if (printerRepository.lockForDispatch(printerId).isEmpty()) {
+            return List.of();
+        }
+        capacity = Math.min(capacity, (int) Math.max(0,
+                maxSendingPerPrinter - printJobRepository.countByPrinterIdAndStatus(printerId, JobStatus.SENDING)));
+        if (capacity == 0) {
+            return List.of();
+        }
+        List<DueJob> due = printJobRepository.lockDueJobs(
+                printerId, JobStatus.QUEUED, now, Limit.of(scheduleWindow));
+        Instant until = now.plusMillis(leaseMs);
+        List<Long> claimed = new ArrayList<>(capacity);
+        for (Long jobId : jobScheduler.pick(due, capacity, now)) {
+            if (printJobRepository.claimLease(jobId, JobStatus.QUEUED, JobStatus.SENDING, nodeId, until) > 0) {
+                claimed.add(jobId);
+            }
+        }
+        // tracked once the claim commits; a rolled back claim leaves nothing to renew
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    inFlight.addAll(claimed);
+                }
+            });
+        } else {
+            inFlight.addAll(claimed);
+        }
+        return claimed;
+    }
+
+    /**
+     * Give back a job this node claimed but will not dispatch after all.
+     */
+    public void release(Long jobId) {
+        inFlight.remove(jobId);
+        printJobRepository.releaseLease(jobId, nodeId, JobStatus.SENDING, JobStatus.QUEUED);
+    }
+
+    /**
+     * The worker is done with a claimed job, whether its outcome was recorded or not;
+     * its lease is no longer renewed, so an unrecorded job goes back to the queue once it runs out.
+     */
+    public void finished(Long jobId) {
+        inFlight.remove(jobId);
+    }
+
+    // well within the lease, so a slow upload to a Pi does not lose its job to another node
+    @Scheduled(fixedDelayString = "${print.dispatch.lease-renew-ms:30000}")
+    public void renewLeases() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        printJobRepository.renewLeases(Set.copyOf(inFlight), nodeId, JobStatus.SENDING,
+                Instant.now().plusMillis(leaseMs));
+    }
+
+    /**
+     * Requeue jobs whose node stopped renewing their lease, e.g. because it crashed
+     * mid-dispatch. A restarted node gets a new id, so its old jobs come back this way too.
+     */
+    @Scheduled(fixedDelayString = "${print.dispatch.reclaim-interval-ms:30000}")
+    public void reclaimExpired() {
+        int reclaimed = printJobRepository.reclaimExpiredLeases(
+                JobStatus.SENDING, JobStatus.QUEUED, Instant.now());
+        if (reclaimed > 0) {
+            log.info("Requeued {} print jobs whose dispatch lease expired", reclaimed);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.dto.DueJob;
+import com.example.smartprint.persistent.DeliveryOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides which due jobs a printer runs next. Small jobs go in a fast lane ahead of
+ * large ones, large ones are ordered shortest first, and every job gains priority
+ * the longer it waits, so a thesis is delayed by the assignments but never starved.
+ */
+@Service
+public class JobScheduler {
+
+    @Value("${print.schedule.fast-lane-max-pages:10}")
+    private int fastLaneMaxPages;
+
+    @Value("${print.auto.seconds-per-page:2}")
+    private double secondsPerPage;
+
+    // seconds of priority a job gains per second spent waiting
+    @Value("${print.schedule.aging-factor:0.25}")
+    private double agingFactor;
+
+    // class deliveries go out with the next round anyway, nobody stands at the printer for them
+    @Value("${print.schedule.delivery-slack-seconds:300}")
+    private double deliverySlackSeconds;
+
+    /**
+     * @return ids of up to {@code capacity} jobs, the one to run first at the head
+     */
+    public List<Long> pick(List<DueJob> due, int capacity, Instant now) {
+        return due.stream()
+                .sorted(Comparator.<DueJob>comparingDouble(job -> score(job, now)).thenComparing(DueJob::id))
+                .limit(capacity)
+                .map(DueJob::id)
+                .toList();
+    }
+
+    /**
+     * Lower runs sooner: the job's own print time outside the fast lane, plus the
+     * delivery slack, minus the aged waiting time.
+     */
+    double score(DueJob job, Instant now) {
+        double score = job.totalPages() <= fastLaneMaxPages ? 0 : job.totalPages() * secondsPerPage;
+        if (job.deliveryOption() == DeliveryOption.CLASS_DELIVERY) {
+            score += deliverySlackSeconds;
+        }
+        double waitedSeconds = Duration.between(job.createdAt(), now).toMillis() / 1000.0;
+        return score - agingFactor * Math.max(0, waitedSeconds);
+    }
+}
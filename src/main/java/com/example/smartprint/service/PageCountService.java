@@ -0,0 +1,178 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.repository.StoredBlobRepository;
+import com.example.smartprint.storage.BlobStore;
+import com.example.smartprint.utils.PdfPageCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class PageCountService {
+    private final StoredBlobRepository blobRepository;
+    private final BlobStore blobStore;
+    private final ExecutorService executor;
+    // scanning is CPU-bound, so at most this many run at once; the tasks themselves are virtual threads
+    private final Semaphore scanPermits;
+    private final Timer scanTimer;
+    private final Map<String, Integer> cache;
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    public PageCountService(StoredBlobRepository blobRepository, BlobStore blobStore, MeterRegistry meterRegistry,
+                            @Value("${print.page-count.threads:4}") int threads,
+                            @Value("${print.page-count.cache-size:10000}") int cacheSize) {
+        this.blobRepository = blobRepository;
+        this.blobStore = blobStore;
+        this.scanTimer = meterRegistry.timer("smartprint.page.count");
+        this.scanPermits = new Semaphore(threads);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("page-count-", 0).factory());
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Count the pages of all stored files of a job. Blobs counted before are not scanned
+     * again; new counts are saved on the blob for future re-uploads.
+     * @param files the stored documents
+     * @return the total number of pages across all files
+     */
+    public int countStoredPages(List<StoredFile> files) {
+        List<CompletableFuture<Integer>> counts = files.stream()
+                .map(file -> file.pageCount() != null
+                        ? CompletableFuture.completedFuture(file.pageCount())
+                        : CompletableFuture.supplyAsync(() -> countAndRecord(file), executor))
+                .toList();
+        int total = 0;
+        for (CompletableFuture<Integer> count : counts) {
+            try {
+                total += count.join();
+            } catch (CompletionException e) {
+                // surface the scan's own error, e.g. an unreadable document, not the wrapper
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return total;
+    }
+
+    private int countAndRecord(StoredFile file) {
+        int pages = countStored(file);
+        blobRepository.recordPageCount(file.sha256(), pages);
+        return pages;
+    }
+
+    // Counting maps the whole document, so a blob with no file on this node is first streamed to a temp file
+    private int countStored(StoredFile file) {
+        Optional<Path> local = blobStore.localPath(file.key());
+        if (local.isPresent()) {
+            return countPages(local.get(), file.sha256());
+        }
+        Integer cached = cached(file.sha256());
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile("page-count-", ".pdf");
+            try (InputStream in = blobStore.open(file.key())) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return countPages(temp, file.sha256());
+        } catch (IOException e) {
+            throw new RuntimeException("Page counting failed: " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // the temp directory is cleaned up eventually
+                }
+            }
+        }
+    }
+
+    // Reuses the result for identical content seen before, under the hash recorded at upload
+    private int countPages(Path file, String hash) {
+        try {
+            scanPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Page counting interrupted");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Document too large to count pages: " + size + " bytes");
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Integer cached = cached(hash);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+            cacheMisses.incrementAndGet();
+            int pages = scanTimer.record(() -> PdfPageCounter.countPages(mapped));
+            cacheLock.lock();
+            try {
+                cache.put(hash, pages);
+            } finally {
+                cacheLock.unlock();
+            }
+            return pages;
+        } catch (IOException e) {
+            throw new RuntimeException("Page counting failed: " + e.getMessage());
+        } finally {
+            scanPermits.release();
+        }
+    }
+
+    private Integer cached(String hash) {
+        cacheLock.lock();
+        try {
+            return cache.get(hash);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    public long cacheHits() {
+        return cacheHits.get();
+    }
+
+    public long cacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.repository.PrintJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Background engine that moves persisted QUEUED jobs to their printers.
+ * Each printer gets its own bounded worker pool so one slow Raspberry Pi
+ * cannot hold up dispatch to the rest of the fleet. Jobs are claimed through
+ * {@link JobLeaseService}, so several nodes can run a dispatcher against one database.
+ */
+@Service
+public class PrintDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(PrintDispatcher.class);
+
+    private final PrintJobRepository printJobRepository;
+    private final PrintService printService;
+    private final PrinterHealthService printerHealthService;
+    private final PrinterLoadService printerLoadService;
+    private final JobEventService jobEventService;
+    private final JobLeaseService jobLeaseService;
+    private final FileStorageService fileStorageService;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, ThreadPoolExecutor> workers = new ConcurrentHashMap<>();
+
+    @Value("${print.dispatch.workers-per-printer:2}")
+    private int workersPerPrinter;
+
+    @Value("${print.dispatch.queue-per-printer:8}")
+    private int queuePerPrinter;
+
+    @Value("${print.dispatch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${print.dispatch.backoff-base-ms:2000}")
+    private long backoffBaseMs;
+
+    @Value("${print.dispatch.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    public PrintDispatcher(PrintJobRepository printJobRepository, PrintService printService,
+                           PrinterHealthService printerHealthService, PrinterLoadService printerLoadService,
+                           JobEventService jobEventService, JobLeaseService jobLeaseService,
+                           FileStorageService fileStorageService, MeterRegistry meterRegistry) {
+        this.printJobRepository = printJobRepository;
+        this.printService = printService;
+        this.printerHealthService = printerHealthService;
+        this.printerLoadService = printerLoadService;
+        this.jobEventService = jobEventService;
+        this.jobLeaseService = jobLeaseService;
+        this.fileStorageService = fileStorageService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Claim due jobs for every printer that still has free worker capacity.
+     * Jobs for printers whose circuit is open stay QUEUED until it closes again.
+     */
+    @Scheduled(fixedDelayString = "${print.dispatch.poll-interval-ms:1000}")
+    public void poll() {
+        Instant now = Instant.now();
+        for (Long printerId : printJobRepository.findPrinterIdsWithDueJobs(JobStatus.QUEUED, now)) {
+            ThreadPoolExecutor pool = workerPool(printerId);
+            int capacity = Math.min(freeCapacity(pool), printerHealthService.dispatchPermits(printerId));
+            if (capacity == 0) {
+                continue;
+            }
+            for (Long jobId : jobLeaseService.claim(printerId, capacity, now)) {
+                try {
+                    printerHealthService.recordDispatchStarted(printerId);
+                    pool.execute(new DispatchTask(jobId));
+                } catch (RejectedExecutionException e) {
+                    jobLeaseService.release(jobId);
+                }
+            }
+        }
+    }
+
+    void dispatch(Long jobId) {
+        try {
+            deliver(jobId);
+        } finally {
+            jobLeaseService.finished(jobId);
+        }
+    }
+
+    private void deliver(Long jobId) {
+        PrintJob job = printJobRepository.findWithFilePathsById(jobId).orElse(null);
+        // the lease may have run out while the job waited for a worker
+        if (job == null || !jobLeaseService.nodeId().equals(job.getLeaseOwner())) {
+            return;
+        }
+        Long printerId = job.getPrinter().getId();
+        // announced once a worker holds the job, not at claim time, so SENDING means on the wire
+        jobEventService.publish(job, JobStatus.SENDING, job.getAttempts(), job.getLastError());
+        long start = System.nanoTime();
+        try {
+            printService.sendToPrinter(job);
+            printerHealthService.recordSuccess(printerId);
+        } catch (RuntimeException e) {
+            requeueOrFail(job, e, System.nanoTime() - start);
+            return;
+        }
+        // the printer has the job from here on, so nothing below may send it back to the queue
+        long elapsed = System.nanoTime() - start;
+        recordDispatch(printerId, "printed", elapsed);
+        if (!recordPrinted(jobId, job.getAttempts() + 1)) {
+            return;
+        }
+        jobEventService.publish(job, JobStatus.PRINTED, job.getAttempts() + 1, null);
+        printerLoadService.jobFinished(printerId, job.getTotalPages(), elapsed / 1_000_000);
+        releaseFiles(job);
+    }
+
+    /**
+     * Record a job the printer has taken, retrying with backoff while the database is
+     * unreachable. The worker keeps the job, and so its renewed lease, until the write
+     * lands; only if this node stops first does the lease run out and the job print again.
+     * @return false if the lease was lost or the worker was interrupted before it landed
+     */
+    private boolean recordPrinted(Long jobId, int attempts) {
+        for (int retry = 1; ; retry++) {
+            try {
+                return recordAttempt(jobId, JobStatus.PRINTED, attempts, null, null);
+            } catch (RuntimeException e) {
+                Duration wait = backoff(retry);
+                log.warn("Print job {} was printed but could not be recorded, retrying in {}: {}",
+                        jobId, wait, e.getMessage());
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    log.error("Print job {} was printed but is still SENDING; it will print again once its lease runs out",
+                            jobId);
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void requeueOrFail(PrintJob job, RuntimeException e, long elapsedNanos) {
+        Long jobId = job.getId();
+        Long printerId = job.getPrinter().getId();
+        printerHealthService.recordFailure(printerId);
+        recordDispatch(printerId, "failed", elapsedNanos);
+        int attempts = job.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.warn("Print job {} failed after {} attempts: {}", jobId, attempts, e.getMessage());
+            if (!recordAttempt(jobId, JobStatus.FAILED, attempts, null, e.getMessage())) {
+                return;
+            }
+            jobEventService.publish(job, JobStatus.FAILED, attempts, e.getMessage());
+            // a failed attempt says nothing about how long a print takes
+            printerLoadService.jobFinished(printerId, job.getTotalPages(), -1);
+            releaseFiles(job);
+        } else {
+            Instant retryAt = Instant.now().plus(backoff(attempts));
+            log.info("Print job {} attempt {} failed, retrying at {}: {}", jobId, attempts, retryAt, e.getMessage());
+            if (!recordAttempt(jobId, JobStatus.QUEUED, attempts, retryAt, e.getMessage())) {
+                return;
+            }
+            jobEventService.publish(job, JobStatus.QUEUED, attempts, e.getMessage());
+        }
+    }
+
+    // a finished job no longer needs its documents; blobs no other job shares are deleted
+    private void releaseFiles(PrintJob job) {
+        try {
+            fileStorageService.releaseJobFiles(job.getFilePaths());
+        } catch (RuntimeException e) {
+            log.warn("Could not release the files of print job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    // false when the lease ran out mid-dispatch and the job now belongs to another node
+    private boolean recordAttempt(Long jobId, JobStatus status, int attempts, Instant nextAttemptAt, String lastError) {
+        JobStatus.SENDING.requireMoveTo(status);
+        if (printJobRepository.recordAttempt(jobId, jobLeaseService.nodeId(), status, attempts, nextAttemptAt, lastError) > 0) {
+            return true;
+        }
+        log.warn("Print job {} lost its dispatch lease; not recording {}", jobId, status);
+        return false;
+    }
+
+    // one timer per printer and outcome, so a slow or flaky Pi stands out on its own
+    private void recordDispatch(Long printerId, String outcome, long elapsedNanos) {
+        meterRegistry.timer("smartprint.dispatch", "printer", String.valueOf(printerId), "outcome", outcome)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Exponential backoff: base, 2x base, 4x base ... capped at the configured maximum.
+     */
+    Duration backoff(int attempts) {
+        long delay = backoffBaseMs << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(delay, backoffMaxMs));
+    }
+
+    private ThreadPoolExecutor workerPool(Long printerId) {
+        return workers.computeIfAbsent(printerId, id -> {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    workersPerPrinter, workersPerPrinter, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queuePerPrinter),
+                    // the pool bounds how many jobs a printer gets at once; the workers are virtual
+                    // threads, so a job blocked on a slow Pi holds no platform thread
+                    Thread.ofVirtual().name("print-dispatch-" + id + "-", 0).factory());
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        });
+    }
+
+    private static int freeCapacity(ThreadPoolExecutor pool) {
+        int idleWorkers = Math.max(0, pool.getMaximumPoolSize() - pool.getActiveCount());
+        return idleWorkers + pool.getQueue().remainingCapacity();
+    }
+
+    // a named task, so jobs still waiting in a pool at shutdown can be handed back
+    private final class DispatchTask implements Runnable {
+        private final Long jobId;
+
+        DispatchTask(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public void run() {
+            dispatch(jobId);
+        }
+    }
+
+    /**
+     * Jobs already on the wire finish; jobs still waiting for a worker are released
+     * so another node can take them without waiting for the lease to expire.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<Runnable> waiting = new ArrayList<>();
+        for (ThreadPoolExecutor pool : workers.values()) {
+            pool.shutdown();
+            pool.getQueue().drainTo(waiting);
+        }
+        for (Runnable task : waiting) {
+            jobLeaseService.release(((DispatchTask) task).jobId);
+        }
+    }
+}
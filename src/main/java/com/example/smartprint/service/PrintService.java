@@ -2,41 +2,223 @@ package com.example.smartprint.service;
 
 import com.example.smartprint.persistent.PrintJob;
 import com.example.smartprint.persistent.Printer;
-import org.springframework.http.*;
+import com.example.smartprint.storage.BlobStore;
+import com.example.smartprint.utils.MappedFileBody;
+import com.example.smartprint.utils.StreamBody;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Sends documents from the {@link BlobStore} to the Raspberry Pi print endpoints over the
+ * shared {@link HttpClient}. Each request is a blocking send on the calling dispatch worker:
+ * in flight it holds a pooled keep-alive connection and a parked virtual thread, never a
+ * platform thread, and each printer takes at most a configured number at once.
+ */
 @Service
 public class PrintService {
-    private final RestTemplate restTemplate;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final ObjectMapper JSON = new ObjectMapper();
 
-    public PrintService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    private final HttpClient httpClient;
+    private final BlobStore blobStore;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Semaphore> limiters = new ConcurrentHashMap<>();
+
+    // time allowed for the Pi to answer once the body is sent
+    @Value("${printer.http.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    // slowest upload rate still tolerated; large documents get proportionally longer timeouts
+    @Value("${printer.http.min-bytes-per-second:262144}")
+    private long minBytesPerSecond;
+
+    @Value("${printer.http.max-concurrent-per-printer:4}")
+    private int maxConcurrentPerPrinter;
+
+    public PrintService(HttpClient httpClient, BlobStore blobStore, MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.blobStore = blobStore;
+        this.meterRegistry = meterRegistry;
     }
 
+    /**
+     * Blocks until the printer has taken the whole job. The send runs on the caller's own
+     * thread; dispatch workers are virtual threads, so waiting here does not hold a platform thread.
+     */
     public void sendToPrinter(PrintJob job) {
         Printer printer = job.getPrinter();  // Now works
         String piEndpoint = "http://" + printer.getIpAddress() + ":5000/print"; // Fixed case
 
-        job.getFilePaths().forEach(filePath -> {  // Now works
-            try {
-                File file = new File(filePath);
-                byte[] fileContent = Files.readAllBytes(file.toPath());
-
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_PDF);
-
-                restTemplate.postForEntity(
-                        piEndpoint,
-                        new HttpEntity<>(fileContent, headers),
-                        String.class
-                );
-            } catch (IOException e) {
-                throw new RuntimeException("File send failed: " + e.getMessage());
+        String printerTag = String.valueOf(printer.getId());
+        if (printer.isBatchDispatch() && job.getFilePaths().size() > 1) {
+            long bytes = sendBatch(piEndpoint + "/batch", job.getId(), job.getFilePaths());
+            meterRegistry.counter("smartprint.printer.sent.bytes", "printer", printerTag).increment(bytes);
+            return;
+        }
+        // files go one after another, in job order
+        for (String key : job.getFilePaths()) {
+            long bytes = sendFile(piEndpoint, key);
+            meterRegistry.counter("smartprint.printer.sent.bytes", "printer", printerTag).increment(bytes);
+        }
+    }
+
+    /**
+     * Stream a single stored file to the printer with a fixed Content-Length, never
+     * loading it into memory first.
+     */
+    long sendFile(String piEndpoint, String key) {
+        return limited(piEndpoint, () -> {
+            long size = blobStore.size(key);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(piEndpoint))
+                    .timeout(requestTimeout(size))
+                    .header("Content-Type", MediaType.APPLICATION_PDF_VALUE)
+                    .POST(blobBody(key, size))
+                    .build();
+            expectSuccess(httpClient.send(request, HttpResponse.BodyHandlers.discarding()), piEndpoint);
+            return size;
+        });
+    }
+
+    /**
+     * Stream all files of a job as one multipart/form-data POST: a JSON manifest part,
+     * then one part per file in job order, each streamed from the blob store. The Pi prints
+     * only once the whole batch has arrived and acknowledges the number of files, so a
+     * transfer that breaks off is retried as a whole instead of leaving half a job printed.
+     * @return the bytes sent, multipart framing included
+     */
+    long sendBatch(String batchEndpoint, Long jobId, List<String> keys) {
+        return limited(batchEndpoint, () -> {
+            String boundary = "smartprint-" + UUID.randomUUID();
+            List<BatchFile> entries = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                entries.add(new BatchFile(key.substring(key.lastIndexOf('/') + 1), blobStore.size(key)));
+            }
+            byte[] manifest = JSON.writeValueAsBytes(new BatchManifest(jobId, entries));
+            List<HttpRequest.BodyPublisher> parts = new ArrayList<>();
+            parts.add(HttpRequest.BodyPublishers.ofByteArray(
+                    partHeader(boundary, "manifest", null, MediaType.APPLICATION_JSON, manifest.length)));
+            parts.add(HttpRequest.BodyPublishers.ofByteArray(manifest));
+            parts.add(HttpRequest.BodyPublishers.ofByteArray(CRLF));
+            for (int i = 0; i < keys.size(); i++) {
+                BatchFile entry = entries.get(i);
+                parts.add(HttpRequest.BodyPublishers.ofByteArray(
+                        partHeader(boundary, "file", entry.name(), MediaType.APPLICATION_PDF, entry.size())));
+                parts.add(blobBody(keys.get(i), entry.size()));
+                parts.add(HttpRequest.BodyPublishers.ofByteArray(CRLF));
             }
+            parts.add(HttpRequest.BodyPublishers.ofByteArray(
+                    ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII)));
+            // every part has a known length, so the whole body goes out with a fixed Content-Length
+            HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.concat(
+                    parts.toArray(HttpRequest.BodyPublisher[]::new));
+            long contentLength = body.contentLength();
+
+            HttpRequest request = HttpRequest.newBuilder(URI.create(batchEndpoint))
+                    .timeout(requestTimeout(contentLength))
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(body)
+                    .build();
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            expectSuccess(response, batchEndpoint);
+            BatchAck ack = readAck(response.body());
+            if (ack.files() != keys.size()) {
+                throw new RuntimeException("Printer acknowledged " + ack.files()
+                        + " of " + keys.size() + " files for job " + jobId);
+            }
+            return contentLength;
         });
     }
-}
\ No newline at end of file
+
+    // Mapped from disk when the store keeps a file on this node, otherwise read from the store as it is sent
+    private HttpRequest.BodyPublisher blobBody(String key, long size) throws IOException {
+        Optional<Path> local = blobStore.localPath(key);
+        if (local.isPresent()) {
+            return MappedFileBody.of(local.get());
+        }
+        return StreamBody.of(() -> blobStore.open(key), size);
+    }
+
+    private Duration requestTimeout(long bytes) {
+        return Duration.ofMillis(readTimeoutMs + bytes * 1000 / Math.max(1, minBytesPerSecond));
+    }
+
+    private static void expectSuccess(HttpResponse<?> response, String endpoint) {
+        if (response.statusCode() >= 300) {
+            throw new RuntimeException("Printer at " + endpoint + " answered " + response.statusCode());
+        }
+    }
+
+    private static BatchAck readAck(byte[] body) {
+        try {
+            return JSON.readValue(body, BatchAck.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Unreadable batch acknowledgement: " + e.getMessage());
+        }
+    }
+
+    private static byte[] partHeader(String boundary, String name, String fileName, MediaType type, long length) {
+        String disposition = "form-data; name=\"" + name + "\""
+                + (fileName != null ? "; filename=\"" + fileName + "\"" : "");
+        return ("--" + boundary + "\r\n"
+                + "Content-Disposition: " + disposition + "\r\n"
+                + "Content-Type: " + type + "\r\n"
+                + "Content-Length: " + length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private interface PrinterCall<T> {
+        T run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Runs a request once its printer has a free slot, one semaphore per printer keyed by
+     * host and port. Callers over the cap park until an earlier request finishes.
+     */
+    private <T> T limited(String endpoint, PrinterCall<T> call) {
+        URI uri = URI.create(endpoint);
+        Semaphore slots = limiters.computeIfAbsent(uri.getHost() + ":" + uri.getPort(),
+                key -> new Semaphore(maxConcurrentPerPrinter, true));
+        try {
+            slots.acquire();
+            try {
+                return call.run();
+            } finally {
+                slots.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("File send failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("File send failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Manifest sent ahead of the files, and the Pi's answer once it holds the whole batch
+    record BatchManifest(Long jobId, List<BatchFile> files) {
+    }
+
+    record BatchFile(String name, long size) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BatchAck(int files) {
+    }
+}
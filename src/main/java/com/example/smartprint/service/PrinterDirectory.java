@@ -0,0 +1,111 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.dto.PrinterView;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.repository.PrinterRepository;
+import com.example.smartprint.utils.ContentHash;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of the printer fleet behind GET /api/printers. The fleet changes a few
+ * times a day while clients list it constantly, so listings are built from this snapshot
+ * and the health table without a query. It is reloaded when a printer is added here and
+ * every refresh interval, which picks up printers added through other nodes.
+ */
+@Service
+public class PrinterDirectory {
+    private static final int CIRCUIT_STATES = PrinterHealthService.CircuitState.values().length;
+
+    private final PrinterRepository printerRepository;
+    private final PrinterHealthService printerHealthService;
+    // one reload at a time
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    private record Row(Long id, String name, String location, double costPerPage, String ipAddress,
+                       boolean batchDispatch) {
+
+        static Row of(Printer printer) {
+            return new Row(printer.getId(), printer.getName(), printer.getLocation(), printer.getCostPerPage(),
+                    printer.getIpAddress(), printer.isBatchDispatch());
+        }
+
+        PrinterView view(PrinterHealthService.Health health) {
+            return new PrinterView(id, name, location, costPerPage, ipAddress, batchDispatch,
+                    health.status(), health.circuit(), health.latencyMs(), health.checkedAt());
+        }
+    }
+
+    // version is a hash of the rows, so every node gives the same fleet the same version
+    private record Snapshot(List<Row> rows, String version) {
+    }
+
+    public PrinterDirectory(PrinterRepository printerRepository, PrinterHealthService printerHealthService) {
+        this.printerRepository = printerRepository;
+        this.printerHealthService = printerHealthService;
+    }
+
+    /**
+     * Reload the fleet from the database; the version only moves if a printer changed.
+     */
+    @Scheduled(fixedDelayString = "${printer.directory.refresh-ms:60000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            List<Row> rows = printerRepository.findAll().stream()
+                    .map(Row::of)
+                    .sorted(Comparator.comparing(Row::id))
+                    .toList();
+            if (snapshot != null && snapshot.rows().equals(rows)) {
+                return;
+            }
+            MessageDigest digest = ContentHash.newDigest();
+            digest.update(rows.toString().getBytes(StandardCharsets.UTF_8));
+            snapshot = new Snapshot(rows, ContentHash.hex(digest).substring(0, 16));
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Weak ETag of the current listing: the fleet version plus each printer's status and
+     * circuit. Latency and check times are left out, so a probe alone does not change it.
+     * Health is probed by each node on its own, so two nodes can briefly tag the same
+     * fleet differently; a client switching nodes then just gets one full listing.
+     */
+    public String etag() {
+        Snapshot current = snapshot();
+        int health = 1;
+        for (Row row : current.rows()) {
+            PrinterHealthService.Health h = printerHealthService.health(row.id());
+            // ordinals, not enum hash codes, which change from one run to the next
+            health = 31 * health + h.status().ordinal() * CIRCUIT_STATES + h.circuit().ordinal();
+        }
+        return "W/\"" + current.version() + "-" + Integer.toHexString(health) + "\"";
+    }
+
+    /**
+     * Every printer with its live health, in id order.
+     */
+    public List<PrinterView> printers() {
+        return snapshot().rows().stream()
+                .map(row -> row.view(printerHealthService.health(row.id())))
+                .toList();
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.repository.PrinterRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a live up/down/latency table for every printer and a circuit breaker per
+ * printer, so dispatch fails fast (and holds jobs) while a Raspberry Pi is unreachable.
+ */
+@Service
+public class PrinterHealthService {
+    public static final int PRINTER_PORT = 5000;
+
+    public enum Status { UP, DOWN, UNKNOWN }
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    public record Health(Status status, long latencyMs, Instant checkedAt, CircuitState circuit) {
+    }
+
+    private static final Health UNKNOWN = new Health(Status.UNKNOWN, -1, null, CircuitState.CLOSED);
+
+    private final PrinterRepository printerRepository;
+    private final ExecutorService probePool;
+    private final Semaphore probePermits;
+    private final Map<Long, Health> table = new ConcurrentHashMap<>();
+    private final Map<Long, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    @Value("${printer.health.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${printer.circuit.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${printer.circuit.open-ms:30000}")
+    private long openMs;
+
+    public PrinterHealthService(PrinterRepository printerRepository,
+                                @Value("${printer.health.probe-threads:4}") int probeThreads) {
+        this.printerRepository = printerRepository;
+        // probes mostly wait on connect timeouts, so they run on virtual threads, a few at a time
+        this.probePermits = new Semaphore(probeThreads);
+        this.probePool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("printer-probe-", 0).factory());
+    }
+
+    /**
+     * Probe every printer's print port in parallel and refresh the health table.
+     */
+    @Scheduled(fixedDelayString = "${printer.health.probe-interval-ms:15000}")
+    public void probeAll() {
+        List<Printer> printers = printerRepository.findAll();
+        List<Future<?>> probes = new ArrayList<>(printers.size());
+        for (Printer printer : printers) {
+            probes.add(probePool.submit(() -> {
+                probePermits.acquire();
+                try {
+                    probe(printer.getId(), printer.getIpAddress());
+                } finally {
+                    probePermits.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> probe : probes) {
+            try {
+                probe.get();
+            } catch (ExecutionException e) {
+                // probe() records its own failures
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        table.keySet().retainAll(printers.stream().map(Printer::getId).toList());
+    }
+
+    void probe(Long printerId, String ipAddress) {
+        long start = System.nanoTime();
+        boolean up;
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(ipAddress, PRINTER_PORT), connectTimeoutMs);
+            up = true;
+        } catch (IOException | IllegalArgumentException e) {
+            up = false;
+        }
+        long latencyMs = (System.nanoTime() - start) / 1_000_000;
+        CircuitBreaker breaker = breaker(printerId);
+        if (up) {
+            breaker.probeSucceeded();
+        } else {
+            breaker.recordFailure();
+        }
+        table.put(printerId, new Health(up ? Status.UP : Status.DOWN, up ? latencyMs : -1,
+                Instant.now(), breaker.state()));
+    }
+
+    public Health health(Long printerId) {
+        Health health = table.getOrDefault(printerId, UNKNOWN);
+        return new Health(health.status(), health.latencyMs(), health.checkedAt(), breaker(printerId).state());
+    }
+
+    /**
+     * @return how many jobs may be sent to the printer right now: unlimited while the
+     * circuit is closed, one trial job when half-open, none while open
+     */
+    public int dispatchPermits(Long printerId) {
+        return breaker(printerId).permits();
+    }
+
+    /**
+     * Called when a job is actually handed to the printer's workers; in half-open state
+     * this uses up the single trial.
+     */
+    public void recordDispatchStarted(Long printerId) {
+        breaker(printerId).started();
+    }
+
+    public void recordSuccess(Long printerId) {
+        breaker(printerId).recordSuccess();
+    }
+
+    public void recordFailure(Long printerId) {
+        breaker(printerId).recordFailure();
+    }
+
+    private CircuitBreaker breaker(Long printerId) {
+        return breakers.computeIfAbsent(printerId, id -> new CircuitBreaker());
+    }
+
+    /**
+     * Classic three-state breaker: consecutive failures open it, it stays open for
+     * openMs (or until a probe sees the printer again), then lets one trial job through.
+     */
+    private final class CircuitBreaker {
+        private final ReentrantLock lock = new ReentrantLock();
+        // written under the lock, read without it for the health table
+        private volatile CircuitState state = CircuitState.CLOSED;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean trialInFlight;
+
+        CircuitState state() {
+            return state;
+        }
+
+        int permits() {
+            lock.lock();
+            try {
+                if (state == CircuitState.OPEN && System.currentTimeMillis() >= openUntil) {
+                    state = CircuitState.HALF_OPEN;
+                    trialInFlight = false;
+                }
+                switch (state) {
+                    case CLOSED:
+                        return Integer.MAX_VALUE;
+                    case HALF_OPEN:
+                        return trialInFlight ? 0 : 1;
+                    default:
+                        return 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void started() {
+            lock.lock();
+            try {
+                if (state == CircuitState.HALF_OPEN) {
+                    trialInFlight = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordSuccess() {
+            lock.lock();
+            try {
+                state = CircuitState.CLOSED;
+                consecutiveFailures = 0;
+                trialInFlight = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordFailure() {
+            lock.lock();
+            try {
+                consecutiveFailures++;
+                if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                    state = CircuitState.OPEN;
+                    openUntil = System.currentTimeMillis() + openMs;
+                    trialInFlight = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void probeSucceeded() {
+            lock.lock();
+            try {
+                // the printer answers again: allow a trial job now instead of waiting out openMs
+                if (state == CircuitState.OPEN) {
+                    state = CircuitState.HALF_OPEN;
+                    trialInFlight = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        probePool.shutdown();
+    }
+}
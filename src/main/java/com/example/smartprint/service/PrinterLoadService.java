@@ -0,0 +1,181 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory load table of every printer (jobs and pages not yet printed, recent
+ * dispatch latency), updated on each job state change on this node and recounted from
+ * the database every few seconds, and the "auto" printer choice built on top of it.
+ */
+@Service
+public class PrinterLoadService {
+    private final PrinterRepository printerRepository;
+    private final PrintJobRepository printJobRepository;
+    private final PrinterDirectory printerDirectory;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, Load> loads = new ConcurrentHashMap<>();
+
+    // estimated printing speed used to turn outstanding pages into waiting time
+    @Value("${print.auto.seconds-per-page:2}")
+    private double secondsPerPage;
+
+    // how many seconds of extra waiting one unit of cost per page is worth
+    @Value("${print.auto.cost-weight-seconds:60}")
+    private double costWeightSeconds;
+
+    // extra waiting accepted to avoid walking to a printer in another location
+    @Value("${print.auto.location-penalty-seconds:300}")
+    private double locationPenaltySeconds;
+
+    public record Candidate(Long id, double costPerPage, String location) {
+    }
+
+    /**
+     * A printer's queue depth, read from memory. Jobs queued or finished through other
+     * nodes are counted from the next database recount, at most print.load.resync-ms later.
+     */
+    public record LoadSnapshot(int queuedJobs, long pagesOutstanding, double dispatchLatencyMs) {
+    }
+
+    private static final class Load {
+        final AtomicInteger queuedJobs = new AtomicInteger();
+        final AtomicLong pagesOutstanding = new AtomicLong();
+        // exponentially weighted moving average of dispatch latency
+        volatile double latencyMs;
+    }
+
+    public PrinterLoadService(PrinterRepository printerRepository, PrintJobRepository printJobRepository,
+                              PrinterDirectory printerDirectory, MeterRegistry meterRegistry) {
+        this.printerRepository = printerRepository;
+        this.printJobRepository = printJobRepository;
+        this.printerDirectory = printerDirectory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Recount jobs and pages still waiting from the database. Jobs queued or finished
+     * through other nodes never pass through this node's counters, so the table is
+     * reseeded at startup and on a short schedule; in between it moves incrementally.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${print.load.resync-ms:5000}", initialDelayString = "${print.load.resync-ms:5000}")
+    public void seed() {
+        // what the counters read before the query: only the difference between the database and
+        // this is applied, so jobs queued or finished here while the query runs are not lost
+        Map<Long, long[]> before = new HashMap<>();
+        loads.forEach((printerId, load) ->
+                before.put(printerId, new long[]{load.queuedJobs.get(), load.pagesOutstanding.get()}));
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Object[] row : printJobRepository.countOutstandingByPrinter(JobStatus.OUTSTANDING)) {
+            counts.put((Long) row[0], new long[]{((Number) row[1]).longValue(),
+                    row[2] == null ? 0 : ((Number) row[2]).longValue()});
+        }
+        counts.keySet().forEach(this::load);
+        loads.forEach((printerId, load) -> {
+            long[] count = counts.getOrDefault(printerId, new long[2]);
+            long[] seen = before.getOrDefault(printerId, new long[2]);
+            load.queuedJobs.updateAndGet(n -> (int) Math.max(0, n + count[0] - seen[0]));
+            load.pagesOutstanding.updateAndGet(n -> Math.max(0, n + count[1] - seen[1]));
+        });
+    }
+
+    public void jobQueued(Long printerId, int pages) {
+        Load load = load(printerId);
+        load.queuedJobs.incrementAndGet();
+        load.pagesOutstanding.addAndGet(pages);
+    }
+
+    /**
+     * A job left the queue for good (printed or failed).
+     */
+    public void jobFinished(Long printerId, int pages, long dispatchLatencyMs) {
+        Load load = load(printerId);
+        load.queuedJobs.updateAndGet(n -> Math.max(0, n - 1));
+        load.pagesOutstanding.updateAndGet(n -> Math.max(0, n - pages));
+        if (dispatchLatencyMs >= 0) {
+            double previous = load.latencyMs;
+            load.latencyMs = previous == 0 ? dispatchLatencyMs : 0.8 * previous + 0.2 * dispatchLatencyMs;
+        }
+    }
+
+    public LoadSnapshot snapshot(Long printerId) {
+        Load load = loads.get(printerId);
+        if (load == null) {
+            return new LoadSnapshot(0, 0, 0);
+        }
+        return new LoadSnapshot(load.queuedJobs.get(), load.pagesOutstanding.get(), load.latencyMs);
+    }
+
+    /**
+     * Pick the printer with the lowest expected cost of waiting for a new job.
+     * @param location the submitter's preferred location, or null for no preference
+     * @return the chosen printer
+     * @throws RuntimeException if no printer is currently available
+     */
+    public Printer selectPrinter(String location) {
+        // candidates come from the in-memory directory; only the chosen printer is read
+        List<Candidate> candidates = printerDirectory.printers().stream()
+                .filter(printer -> printer.status() != PrinterHealthService.Status.DOWN)
+                .filter(printer -> printer.circuit() != PrinterHealthService.CircuitState.OPEN)
+                .map(printer -> new Candidate(printer.id(), printer.costPerPage(), printer.location()))
+                .toList();
+        Long chosen = choose(candidates, location);
+        if (chosen == null) {
+            throw new RuntimeException("No printer available");
+        }
+        return printerRepository.findById(chosen)
+                .orElseThrow(() -> new RuntimeException("No printer available"));
+    }
+
+    Long choose(List<Candidate> candidates, String location) {
+        return candidates.stream()
+                .min(Comparator.comparingDouble((Candidate c) -> score(c, location)).thenComparing(Candidate::id))
+                .map(Candidate::id)
+                .orElse(null);
+    }
+
+    /**
+     * Expected waiting time in seconds, plus cost and location preferences expressed in seconds.
+     */
+    double score(Candidate candidate, String location) {
+        LoadSnapshot load = snapshot(candidate.id());
+        double waitSeconds = load.pagesOutstanding() * secondsPerPage
+                + load.queuedJobs() * load.dispatchLatencyMs() / 1000.0;
+        double costSeconds = candidate.costPerPage() * costWeightSeconds;
+        double locationSeconds = location != null && !location.equalsIgnoreCase(candidate.location())
+                ? locationPenaltySeconds : 0;
+        return waitSeconds + costSeconds + locationSeconds;
+    }
+
+    private Load load(Long printerId) {
+        return loads.computeIfAbsent(printerId, id -> {
+            Load load = new Load();
+            // queue depth per printer, read straight from the load table
+            Gauge.builder("smartprint.printer.queue.jobs", load, l -> l.queuedJobs.get())
+                    .tag("printer", String.valueOf(id))
+                    .register(meterRegistry);
+            Gauge.builder("smartprint.printer.queue.pages", load, l -> l.pagesOutstanding.get())
+                    .tag("printer", String.valueOf(id))
+                    .register(meterRegistry);
+            return load;
+        });
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.smartprint.service;
 
+import com.example.smartprint.dto.JobPage;
+import com.example.smartprint.dto.PrinterView;
+import com.example.smartprint.persistent.JobStatus;
 import com.example.smartprint.persistent.Printer;
-import com.example.smartprint.persistent.PrintJob;
 import com.example.smartprint.repository.PrinterRepository;
 import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
 import java.util.List;
 
 @Service
@@ -14,38 +23,91 @@ import java.util.List;
 public class PrinterService {
     private final PrinterRepository printerRepository;
     private final PrintJobRepository printJobRepository;
+    private final UserRepository userRepository;
+    private final JobEventService jobEventService;
+    private final PrinterDirectory printerDirectory;
 
-    public PrinterService(PrinterRepository printerRepository, PrintJobRepository printJobRepository) {
+    public PrinterService(PrinterRepository printerRepository, PrintJobRepository printJobRepository, UserRepository userRepository, JobEventService jobEventService, PrinterDirectory printerDirectory) {
         this.printerRepository = printerRepository;
         this.printJobRepository = printJobRepository;
+        this.userRepository = userRepository;
+        this.jobEventService = jobEventService;
+        this.printerDirectory = printerDirectory;
     }
 
     /**
      * Add a new printer to the system.
      * @param printer the printer entity to save
+     * @param ownerId the user adding it, who alone may see its jobs
      * @return the saved printer with generated ID
      */
-    public Printer addPrinter(Printer printer) {
-        return printerRepository.save(printer);
+    public Printer addPrinter(Printer printer, Long ownerId) {
+        printer.setOwner(userRepository.getReferenceById(ownerId));
+        Printer saved = printerRepository.save(printer);
+        printerDirectory.refresh();
+        return saved;
     }
 
     /**
-     * Retrieve all printers registered in the system.
-     * @return a list of all printers
+     * Retrieve all printers registered in the system with their live health, from the
+     * in-memory directory.
+     * @return a list of all printers, including up/down status, latency and circuit state
      */
-    public List<Printer> getAllPrinters() {
-        return printerRepository.findAll();
+    public List<PrinterView> getAllPrinters() {
+        return printerDirectory.printers();
     }
 
     /**
-     * Retrieve all print jobs associated with a specific printer.
+     * The ETag of what {@link #getAllPrinters()} returns right now.
+     * @return a weak entity tag that changes with the fleet and with printers' status
+     */
+    public String getPrintersETag() {
+        return printerDirectory.etag();
+    }
+
+    /**
+     * Retrieve one page of the print jobs associated with a specific printer, newest first.
      * @param printerId the ID of the printer
-     * @return a list of print jobs for the given printer
-     * @throws RuntimeException if the printer does not exist
+     * @param userId the caller, who must own the printer unless it has no owner
+     * @param status only jobs in this status, or null for all
+     * @param from only jobs created at or after this instant, or null
+     * @param to only jobs created before this instant, or null
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param size the page size, clamped to 1..100
+     * @return a page of job summaries for the given printer
+     * @throws RuntimeException if the printer does not exist or belongs to another owner
      */
-    public List<PrintJob> getPrinterJobs(Long printerId) {
-        Printer printer = printerRepository.findById(printerId)
-                .orElseThrow(() -> new RuntimeException("Printer not found with ID: " + printerId));
-        return printJobRepository.findByPrinter(printer);
+    @Transactional(readOnly = true)
+    public JobPage getPrinterJobs(Long printerId, Long userId, JobStatus status, Instant from, Instant to,
+                                  Long cursor, int size) {
+        requireOwner(printerId, userId);
+        int pageSize = JobPage.clampSize(size);
+        return JobPage.of(printJobRepository.findPrinterJobPage(
+                printerId, status, from, to, cursor, Limit.of(pageSize + 1)), pageSize);
+    }
+
+    /**
+     * Open a stream of status changes for every job sent to a printer.
+     * @param printerId the ID of the printer
+     * @param userId the caller, who must own the printer unless it has no owner
+     * @return an open server-sent event stream
+     * @throws RuntimeException if the printer does not exist or belongs to another owner
+     */
+    public SseEmitter streamPrinterJobEvents(Long printerId, Long userId) {
+        requireOwner(printerId, userId);
+        return jobEventService.subscribePrinter(printerId);
+    }
+
+    // Printers registered before owners were recorded have none. Until one is assigned, any
+    // printer owner may see their jobs, as every printer owner could before.
+    private void requireOwner(Long printerId, Long userId) {
+        if (printerRepository.existsByIdAndOwnerId(printerId, userId)
+                || printerRepository.existsByIdAndOwnerIsNull(printerId)) {
+            return;
+        }
+        if (!printerRepository.existsById(printerId)) {
+            throw new RuntimeException("Printer not found with ID: " + printerId);
+        }
+        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Printer " + printerId + " belongs to another owner");
     }
 }
@@ -0,0 +1,9 @@
+package com.example.smartprint.service;
+
+/**
+ * A document written by {@link FileStorageService}: its key in the blob store, with
+ * the size and SHA-256 recorded while it was stored. {@code pageCount} is known when
+ * the same content was uploaded and counted before, and null otherwise.
+ */
+public record StoredFile(String key, long size, String sha256, Integer pageCount) {
+}
@@ -1,36 +1,72 @@
 package com.example.smartprint.service;
 
-import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.Security.AuthPrincipal;
+import com.example.smartprint.Security.PrincipalCache;
+import com.example.smartprint.dto.JobPage;
+import com.example.smartprint.persistent.JobStatus;
 import com.example.smartprint.persistent.User;
 import com.example.smartprint.repository.PrintJobRepository;
 import com.example.smartprint.repository.UserRepository;
 import com.example.smartprint.utils.JwtUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.time.Instant;
 
 @Service
 
 public class UserService {
-    public UserService(UserRepository userRepository, PrintJobRepository printJobRepository, JwtUtils jwtUtils) {
+    public UserService(UserRepository userRepository, PrintJobRepository printJobRepository, JwtUtils jwtUtils, PrincipalCache principalCache, JobEventService jobEventService) {
         this.userRepository = userRepository;
         this.printJobRepository = printJobRepository;
         this.jwtUtils = jwtUtils;
+        this.principalCache = principalCache;
+        this.jobEventService = jobEventService;
     }
 
     private final UserRepository userRepository;
     private final PrintJobRepository printJobRepository;
     private final JwtUtils jwtUtils;
+    private final PrincipalCache principalCache;
+    private final JobEventService jobEventService;
 
     public User getUserFromToken(String token) {
         String email = jwtUtils.extractUsername(token.replace("Bearer ", ""));
+        return getUserByEmail(email);
+    }
+
+    public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
-    public List<PrintJob> getUserJobs(String token) {
-        User user = getUserFromToken(token);
-        return printJobRepository.findByUser(user);
+    public AuthPrincipal getPrincipal(String email) {
+        return principalCache.get(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * One page of the caller's jobs, newest first.
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public JobPage getUserJobs(String token, JobStatus status, Instant from, Instant to, Long cursor, int size) {
+        String email = jwtUtils.extractUsername(token.replace("Bearer ", ""));
+        Long userId = getPrincipal(email).id();
+        int pageSize = JobPage.clampSize(size);
+        return JobPage.of(printJobRepository.findUserJobPage(
+                userId, status, from, to, cursor, Limit.of(pageSize + 1)), pageSize);
+    }
+
+    /**
+     * Open a stream of status changes for the caller's jobs. Clients read their job
+     * list once, then follow this stream instead of polling /my-jobs.
+     */
+    public SseEmitter streamUserJobEvents(String token) {
+        String email = jwtUtils.extractUsername(token.replace("Bearer ", ""));
+        return jobEventService.subscribeUser(getPrincipal(email).id());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package com.example.smartprint.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where stored documents live. Blobs are addressed by a key relative to the store
+ * (<code>ab/cd/&lt;sha256&gt;</code>), so a key saved on a print job means the same
+ * document on every node. Content only ever moves as a stream, never as a byte array.
+ */
+public interface BlobStore {
+
+    /**
+     * Store the content of a local file under {@code key}. The file may be moved into
+     * the store, so the caller must not use it afterwards.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * Stream a blob's content. The caller closes the stream.
+     * @throws java.nio.file.NoSuchFileException if there is no blob under {@code key}
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException if there is no blob under {@code key}
+     */
+    long size(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Delete a blob; deleting a missing one is not an error.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * The blob as a file on this node, for stores that keep one, so callers can map it
+     * instead of streaming it.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
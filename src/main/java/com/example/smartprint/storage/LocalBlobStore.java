@@ -0,0 +1,83 @@
+package com.example.smartprint.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Blobs as files under a directory on this node's disk. Keys are paths relative to
+ * the root; an absolute path, as stored on jobs before keys were introduced, is used
+ * as it is.
+ */
+public class LocalBlobStore implements BlobStore {
+    protected final Path root;
+
+    public LocalBlobStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            // Identical content from a concurrent upload may land first; replacing it is harmless
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // staged on another filesystem
+            copyIn(source, target);
+        }
+    }
+
+    // Copy next to the target first and rename it into place, so a half-written blob is never visible
+    protected void copyIn(Path source, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".put-", ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    protected Path resolve(String key) {
+        Path path = Path.of(key);
+        if (path.isAbsolute()) {
+            return path;
+        }
+        Path resolved = root.resolve(path).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new RuntimeException("Blob key outside the store: " + key);
+        }
+        return resolved;
+    }
+}
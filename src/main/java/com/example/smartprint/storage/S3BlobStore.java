@@ -0,0 +1,167 @@
+package com.example.smartprint.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Blobs as objects in an S3-compatible bucket (AWS S3, MinIO, Ceph RGW), addressed
+ * path-style as <code>&lt;endpoint&gt;/&lt;bucket&gt;/&lt;prefix&gt;&lt;key&gt;</code>.
+ * Uploads stream from the staged file and downloads hand back the response stream,
+ * so no object is ever held in memory.
+ */
+public class S3BlobStore implements BlobStore, AutoCloseable {
+    // the body is streamed, so it is not hashed up front; content keys are hashes anyway
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String EMPTY_PAYLOAD = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final String prefix;
+    private final Duration requestTimeout;
+    private final Clock clock;
+
+    public S3BlobStore(URI endpoint, String bucket, String region, String accessKey, String secretKey,
+                       String prefix, Duration connectTimeout, Duration requestTimeout) {
+        this(endpoint, bucket, region, accessKey, secretKey, prefix, connectTimeout, requestTimeout, Clock.systemUTC());
+    }
+
+    /**
+     * @param requestTimeout how long any one request may wait for the store's answer, an
+     *                       upload included, so a store that stops answering fails the call
+     */
+    S3BlobStore(URI endpoint, String bucket, String region, String accessKey, String secretKey,
+                String prefix, Duration connectTimeout, Duration requestTimeout, Clock clock) {
+        this.endpoint = endpoint;
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.prefix = prefix;
+        this.requestTimeout = requestTimeout;
+        this.clock = clock;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        HttpResponse<Void> response = send(
+                request("PUT", key, UNSIGNED_PAYLOAD, HttpRequest.BodyPublishers.ofFile(source)),
+                HttpResponse.BodyHandlers.discarding());
+        expectSuccess(response, "PUT", key);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        HttpResponse<InputStream> response = send(
+                request("GET", key, EMPTY_PAYLOAD, HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() >= 300) {
+            response.body().close();
+            expectSuccess(response, "GET", key);
+        }
+        return response.body();
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        HttpResponse<Void> response = head(key);
+        expectSuccess(response, "HEAD", key);
+        return response.headers().firstValueAsLong("Content-Length")
+                .orElseThrow(() -> new IOException("No Content-Length for " + key));
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpResponse<Void> response = head(key);
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        expectSuccess(response, "HEAD", key);
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<Void> response = send(
+                request("DELETE", key, EMPTY_PAYLOAD, HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 404) {
+            expectSuccess(response, "DELETE", key);
+        }
+    }
+
+    private HttpResponse<Void> head(String key) throws IOException {
+        return send(request("HEAD", key, EMPTY_PAYLOAD, HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private HttpRequest request(String method, String key, String payloadHash, HttpRequest.BodyPublisher body) {
+        String path = endpoint.getRawPath().replaceAll("/+$", "") + "/" + SigV4.encodePath(bucket + "/" + prefix + key);
+        URI uri = URI.create(endpoint.getScheme() + "://" + endpoint.getRawAuthority() + path);
+        String amzDate = AMZ_DATE.format(clock.instant());
+        SortedMap<String, String> signed = new TreeMap<>();
+        signed.put("host", hostHeader(uri));
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", amzDate);
+        return HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .method(method, body)
+                .header("x-amz-content-sha256", payloadHash)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", SigV4.authorization(method, path, "", signed, payloadHash,
+                        accessKey, secretKey, region, "s3", amzDate))
+                .build();
+    }
+
+    // the Host header HttpClient sends: the port only when it is not the scheme's default
+    private static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || port == ("https".equals(uri.getScheme()) ? 443 : 80);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted talking to the object store");
+        }
+    }
+
+    private static void expectSuccess(HttpResponse<?> response, String method, String key) throws IOException {
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        if (response.statusCode() >= 300) {
+            throw new IOException("Object store answered " + response.statusCode() + " to " + method + " " + key);
+        }
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+    }
+}
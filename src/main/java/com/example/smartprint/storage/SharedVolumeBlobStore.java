@@ -0,0 +1,41 @@
+package com.example.smartprint.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Blobs on a volume every node mounts at the same path, such as NFS or EFS. Uploads
+ * are staged on the receiving node's own disk, so each blob is copied onto the volume,
+ * flushed, and only then renamed into place where the other nodes can see it.
+ */
+public class SharedVolumeBlobStore extends LocalBlobStore {
+
+    public SharedVolumeBlobStore(Path root) {
+        super(root);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        copyIn(source, target);
+    }
+
+    @Override
+    protected void copyIn(Path source, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".put-", ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.smartprint.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes, used as cache and storage keys for uploaded documents.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static String sha256(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MessageDigest digest = newDigest();
+            // map in windows so files beyond 2GB hash too
+            long window = 256L * 1024 * 1024;
+            for (long pos = 0; pos < size; pos += window) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(window, size - pos)));
+            }
+            return hex(digest);
+        }
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -2,10 +2,18 @@
 package com.example.smartprint.utils;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class JwtUtils {
@@ -17,30 +25,122 @@ public class JwtUtils {
     @Value("${jwt.expirationMs}")
     private long expirationMs;
 
+    // how many verified tokens to remember; 0 disables the cache
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    // derived once instead of on every sign/parse call
+    private Key signingKey;
+
+    private Map<String, VerifiedToken> verified;
+    private final ReentrantLock verifiedLock = new ReentrantLock();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private record VerifiedToken(String subject, long expiresAtMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        // same key jjwt derives from a base64 string secret, so existing tokens stay valid
+        signingKey = new SecretKeySpec(TextCodec.BASE64.decode(secret), SignatureAlgorithm.HS256.getJcaName());
+        int maxSize = verifiedCacheSize;
+        verified = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
     public String generateToken(String username) {
         return Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
-                .signWith(SignatureAlgorithm.HS256, secret)
+                .signWith(SignatureAlgorithm.HS256, signingKey)
                 .compact();
     }
 
+    /**
+     * Verify a token and return its subject, parsing and checking the signature at most
+     * once per token while it is cached.
+     * @param token the compact JWT without the "Bearer " prefix
+     * @return the username, or null if the token is invalid or expired
+     */
+    public String verifiedSubject(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = lookup(token);
+        if (cached != null && cached.expiresAtMillis() > now) {
+            cacheHits.incrementAndGet();
+            return cached.subject();
+        }
+        cacheMisses.incrementAndGet();
+        try {
+            Claims claims = Jwts.parser().setSigningKey(signingKey).parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            // tokens without an expiry are re-verified at least every expirationMs
+            long expiresAt = expiration != null ? expiration.getTime() : now + expirationMs;
+            remember(token, new VerifiedToken(claims.getSubject(), expiresAt));
+            return claims.getSubject();
+        } catch (JwtException | IllegalArgumentException e) {
+            if (cached != null) {
+                forget(token);
+            }
+            return null;
+        }
+    }
+
     public String extractUsername(String token) {
-        return Jwts.parser()
-                .setSigningKey(secret)
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        String username = verifiedSubject(token);
+        if (username == null) {
+            throw new JwtException("Invalid or expired token");
+        }
+        return username;
     }
 
     public boolean validateToken(String token) {
+        return verifiedSubject(token) != null;
+    }
+
+    public long cacheHits() {
+        return cacheHits.get();
+    }
+
+    public long cacheMisses() {
+        return cacheMisses.get();
+    }
+
+    private VerifiedToken lookup(String token) {
+        if (verifiedCacheSize <= 0) {
+            return null;
+        }
+        verifiedLock.lock();
         try {
-            Jwts.parser().setSigningKey(secret).parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            // log invalid token here if you like
-            return false;
+            return verified.get(token);
+        } finally {
+            verifiedLock.unlock();
+        }
+    }
+
+    private void forget(String token) {
+        verifiedLock.lock();
+        try {
+            verified.remove(token);
+        } finally {
+            verifiedLock.unlock();
+        }
+    }
+
+    private void remember(String token, VerifiedToken entry) {
+        if (verifiedCacheSize <= 0) {
+            return;
+        }
+        verifiedLock.lock();
+        try {
+            verified.put(token, entry);
+        } finally {
+            verifiedLock.unlock();
         }
     }
 }
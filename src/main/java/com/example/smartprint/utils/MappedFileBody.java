@@ -0,0 +1,112 @@
+package com.example.smartprint.utils;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request body that streams a file as memory-mapped windows. Unlike
+ * {@code BodyPublishers.ofFile}, which copies every chunk into a fresh heap
+ * buffer, sending a file of any size allocates next to nothing on the heap.
+ */
+public final class MappedFileBody {
+    private static final long WINDOW = 1024 * 1024;
+
+    private MappedFileBody() {
+    }
+
+    public static HttpRequest.BodyPublisher of(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size == 0) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        // each subscription (a retried request, say) reads the file from the start again
+        return HttpRequest.BodyPublishers.fromPublisher(
+                subscriber -> subscriber.onSubscribe(new Windows(file, size, subscriber)), size);
+    }
+
+    private static final class Windows implements Flow.Subscription {
+        private final Path file;
+        private final long size;
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // serializes drain() between request() calls from different threads
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+        private FileChannel channel;
+        private long position;
+
+        Windows(Path file, long size, Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.file = file;
+            this.size = size;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                done = true;
+                subscriber.onError(new IllegalArgumentException("non-positive request: " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                try {
+                    while (!done && demand.get() > 0 && position < size) {
+                        if (channel == null) {
+                            channel = FileChannel.open(file, StandardOpenOption.READ);
+                        }
+                        long length = Math.min(WINDOW, size - position);
+                        ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                        position += length;
+                        demand.decrementAndGet();
+                        subscriber.onNext(window);
+                    }
+                    if (!done && position >= size) {
+                        done = true;
+                        close();
+                        subscriber.onComplete();
+                    }
+                } catch (IOException e) {
+                    done = true;
+                    close();
+                    subscriber.onError(e);
+                }
+                if (done) {
+                    close();
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // read-only; nothing to lose
+                }
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,872 @@
+package com.example.smartprint.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Determines the page count of a PDF without parsing the whole document, the way a
+ * reader finds it: startxref leads to the cross-reference data, a classic table or a
+ * cross-reference stream, and through <code>/Prev</code> to that of every earlier
+ * revision. The newest trailer names the catalog with <code>/Root</code>, the catalog
+ * the page tree root with <code>/Pages</code>, and that root holds the
+ * <code>/Count</code>. Each object is read where the newest cross-reference entry for
+ * it says, so incremental updates that add or remove pages are honoured and only the
+ * few objects on that path are touched, however large the file; objects kept in
+ * compressed object streams are inflated on demand.
+ * <p>
+ * When the cross-reference data is missing or points at the wrong place, the file is
+ * scanned for object definitions instead, as a reader repairing it would. Documents
+ * whose trailer, catalog or page tree cannot be read are rejected.
+ */
+public final class PdfPageCounter {
+    private static final byte[] PDF_HEADER = ascii("%PDF-");
+    private static final byte[] STARTXREF = ascii("startxref");
+    private static final byte[] XREF = ascii("xref");
+    private static final byte[] TRAILER = ascii("trailer");
+    private static final byte[] XREF_TYPE = ascii("/XRef");
+    private static final byte[] XREF_STM = ascii("/XRefStm");
+    private static final byte[] PREV = ascii("/Prev");
+    private static final byte[] TYPE = ascii("/Type");
+    private static final byte[] SIZE = ascii("/Size");
+    private static final byte[] INDEX = ascii("/Index");
+    private static final byte[] W = ascii("/W");
+    private static final byte[] ROOT = ascii("/Root");
+    private static final byte[] PAGES = ascii("/Pages");
+    private static final byte[] COUNT = ascii("/Count");
+    private static final byte[] OBJ_STM = ascii("/ObjStm");
+    private static final byte[] LENGTH = ascii("/Length");
+    private static final byte[] FILTER = ascii("/Filter");
+    private static final byte[] FLATE = ascii("/FlateDecode");
+    private static final byte[] DECODE_PARMS = ascii("/DecodeParms");
+    private static final byte[] PREDICTOR = ascii("/Predictor");
+    private static final byte[] COLUMNS = ascii("/Columns");
+    private static final byte[] FIRST = ascii("/First");
+    private static final byte[] N = ascii("/N");
+    private static final byte[] STREAM = ascii("stream");
+    private static final byte[] END_STREAM = ascii("endstream");
+    private static final byte[] OBJ = ascii("obj");
+    private static final byte[] DICT = ascii("<<");
+
+    // Guards against pathological streams blowing up on inflate
+    private static final int MAX_INFLATED_STREAM = 16 * 1024 * 1024;
+    private static final int MAX_DICT_SCAN = 64 * 1024;
+    // "0000000000 65535 f\r\n": every classic xref entry is exactly this long
+    private static final int XREF_ENTRY = 20;
+
+    private PdfPageCounter() {
+    }
+
+    /**
+     * @return the number of pages
+     * @throws RuntimeException if the file is not a PDF or its page tree cannot be read
+     */
+    public static int countPages(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Document too large to count pages: " + size + " bytes");
+            }
+            return countPages(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public static int countPages(ByteBuffer pdf) {
+        if (indexOf(pdf, PDF_HEADER, 0, Math.min(pdf.limit(), 1024)) < 0) {
+            throw unreadable("no %PDF header");
+        }
+        try {
+            XrefObjects objects = new XrefObjects(pdf);
+            return countPages(objects.trailer(), objects);
+        } catch (BrokenXref e) {
+            Location trailer = lastTrailer(pdf);
+            if (trailer == null) {
+                throw unreadable("no trailer");
+            }
+            return countPages(trailer, new ScannedObjects(pdf));
+        }
+    }
+
+    private static int countPages(Location trailer, Objects objects) {
+        Location catalog = objects.resolve(reference(trailer, ROOT));
+        Location pageTree = objects.resolve(reference(catalog, PAGES));
+        long pages = objects.integer(value(pageTree, COUNT));
+        if (pages < 1) {
+            throw unreadable("the page tree has no pages");
+        }
+        return (int) pages;
+    }
+
+    // A value inside a buffer: the top level of the file or an inflated object stream
+    private record Location(ByteBuffer buf, int pos) {
+    }
+
+    /** Cross-reference data that is missing or disagrees with the file; the file is scanned instead. */
+    private static final class BrokenXref extends RuntimeException {
+        BrokenXref() {
+            super(null, null, false, false);
+        }
+    }
+
+    /** Finds objects by number. */
+    private abstract static class Objects {
+        abstract Location resolve(long number);
+
+        // a /Count may itself be an indirect object
+        long integer(Location value) {
+            long number = referenceAt(value);
+            Location target = number >= 0 ? resolve(number) : value;
+            long result = readInt(target.buf(), target.pos(), target.buf().limit());
+            if (result < 0) {
+                throw unreadable("expected a number");
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Finds objects through the cross-reference sections, newest first: the one startxref
+     * points at, the stream a hybrid file names with /XRefStm, then each /Prev in turn.
+     * The first section with an entry for an object decides where it is read, and the
+     * object found there must carry that number, so a stale offset never yields another
+     * object's body. Anything that does not add up throws {@link BrokenXref}.
+     */
+    private static final class XrefObjects extends Objects {
+        private final ByteBuffer pdf;
+        private final List<XrefSection> sections = new ArrayList<>();
+        private final Map<Long, ObjectStream> objectStreams = new HashMap<>();
+        private Location trailer;
+
+        XrefObjects(ByteBuffer pdf) {
+            this.pdf = pdf;
+            int limit = pdf.limit();
+            int startxref = lastIndexOf(pdf, STARTXREF, limit);
+            if (startxref < 0) {
+                throw new BrokenXref();
+            }
+            long offset = readInt(pdf, skipWhitespace(pdf, startxref + STARTXREF.length, limit), limit);
+            Set<Long> visited = new HashSet<>();
+            do {
+                if (offset < 0 || offset >= limit || !visited.add(offset)) {
+                    throw new BrokenXref();
+                }
+                int at = skipWhitespace(pdf, (int) offset, limit);
+                Location dict;
+                if (startsWithName(pdf, at, XREF, limit)) {
+                    dict = readTable(at + XREF.length);
+                    int stream = keyValue(dict, XREF_STM);
+                    if (stream >= 0) {
+                        long streamOffset = readInt(pdf, stream, limit);
+                        if (streamOffset < 0 || streamOffset >= limit || !visited.add(streamOffset)) {
+                            throw new BrokenXref();
+                        }
+                        readStream(skipWhitespace(pdf, (int) streamOffset, limit));
+                    }
+                } else {
+                    dict = readStream(at);
+                }
+                if (trailer == null && keyValue(dict, ROOT) >= 0) {
+                    trailer = dict;
+                }
+                int prev = keyValue(dict, PREV);
+                offset = prev < 0 ? -1 : readInt(pdf, prev, limit);
+            } while (offset >= 0);
+            if (trailer == null) {
+                throw new BrokenXref();
+            }
+        }
+
+        Location trailer() {
+            return trailer;
+        }
+
+        /** Records the subsections of a classic table starting at pos and returns its trailer. */
+        private Location readTable(int pos) {
+            int limit = pdf.limit();
+            List<long[]> subsections = new ArrayList<>();
+            while (true) {
+                pos = skipWhitespace(pdf, pos, limit);
+                if (startsWithName(pdf, pos, TRAILER, limit)) {
+                    break;
+                }
+                long first = readInt(pdf, pos, limit);
+                int countAt = skipWhitespace(pdf, skipDigits(pdf, pos, limit), limit);
+                long count = readInt(pdf, countAt, limit);
+                long entries = skipWhitespace(pdf, skipDigits(pdf, countAt, limit), limit);
+                if (first < 0 || count < 0 || entries + count * XREF_ENTRY > limit) {
+                    throw new BrokenXref();
+                }
+                subsections.add(new long[] {first, count, entries});
+                pos = (int) (entries + count * XREF_ENTRY);
+            }
+            sections.add(new XrefTable(pdf, subsections));
+            int dict = skipWhitespace(pdf, pos + TRAILER.length, limit);
+            if (!regionMatches(pdf, dict, DICT)) {
+                throw new BrokenXref();
+            }
+            return new Location(pdf, dict);
+        }
+
+        /** Decodes the cross-reference stream object at pos and returns its dictionary. */
+        private Location readStream(int pos) {
+            int limit = pdf.limit();
+            int start = objectBody(pdf, pos, limit);
+            if (start < 0 || !regionMatches(pdf, start, DICT)) {
+                throw new BrokenXref();
+            }
+            int end = dictEnd(pdf, start);
+            int type = keyValue(pdf, start, end, TYPE);
+            long[] widths = integers(pdf, keyValue(pdf, start, end, W), end);
+            if (type < 0 || !startsWithName(pdf, type, XREF_TYPE, end) || widths == null || widths.length != 3) {
+                throw new BrokenXref();
+            }
+            int indexAt = keyValue(pdf, start, end, INDEX);
+            long[] index = indexAt >= 0
+                    ? integers(pdf, indexAt, end)
+                    : new long[] {0, readInt(pdf, keyValue(pdf, start, end, SIZE), end)};
+            ByteBuffer data = streamContent(pdf, start, end);
+            if (index == null || index.length == 0 || index.length % 2 != 0 || index[index.length - 1] < 0
+                    || data == null) {
+                throw new BrokenXref();
+            }
+            for (long width : widths) {
+                if (width < 0 || width > 8) {
+                    throw new BrokenXref();
+                }
+            }
+            sections.add(new XrefStream(data, widths, index));
+            return new Location(pdf, start);
+        }
+
+        @Override
+        Location resolve(long number) {
+            XrefEntry entry = entry(number);
+            if (entry.type() == 1) {
+                return topLevel(number, entry.first());
+            }
+            ObjectStream stream = objectStreams.get(entry.first());
+            if (stream == null) {
+                XrefEntry streamEntry = entry(entry.first());
+                if (streamEntry.type() != 1) {
+                    throw new BrokenXref();
+                }
+                stream = ObjectStream.read(topLevel(entry.first(), streamEntry.first()));
+                if (stream == null) {
+                    throw new BrokenXref();
+                }
+                objectStreams.put(entry.first(), stream);
+            }
+            Location location = stream.object((int) entry.second(), number);
+            if (location == null) {
+                throw new BrokenXref();
+            }
+            return location;
+        }
+
+        private XrefEntry entry(long number) {
+            for (XrefSection section : sections) {
+                XrefEntry entry = section.entry(number);
+                if (entry != null) {
+                    if (entry.type() != 1 && entry.type() != 2) {
+                        throw new BrokenXref();
+                    }
+                    return entry;
+                }
+            }
+            throw new BrokenXref();
+        }
+
+        private Location topLevel(long number, long offset) {
+            int limit = pdf.limit();
+            if (offset >= limit) {
+                throw new BrokenXref();
+            }
+            int at = skipWhitespace(pdf, (int) offset, limit);
+            int body = objectBody(pdf, at, limit);
+            if (body < 0 || readInt(pdf, at, limit) != number) {
+                throw new BrokenXref();
+            }
+            return new Location(pdf, body);
+        }
+    }
+
+    /**
+     * Where an object lives: type 1 at byte offset {@code first} of the file, type 2 as
+     * entry {@code second} of object stream {@code first}; type 0 marks a free object.
+     */
+    private record XrefEntry(long type, long first, long second) {
+    }
+
+    private interface XrefSection {
+        /** The entry for the object, or null if this section does not mention it. */
+        XrefEntry entry(long number);
+    }
+
+    /** A classic table; each subsection is {first object, count, position of its first entry}. */
+    private record XrefTable(ByteBuffer pdf, List<long[]> subsections) implements XrefSection {
+        @Override
+        public XrefEntry entry(long number) {
+            for (long[] subsection : subsections) {
+                if (number < subsection[0] || number >= subsection[0] + subsection[1]) {
+                    continue;
+                }
+                int at = (int) (subsection[2] + (number - subsection[0]) * XREF_ENTRY);
+                int limit = pdf.limit();
+                if (skipDigits(pdf, at, limit) != at + 10 || pdf.get(at + 10) != ' '
+                        || skipDigits(pdf, at + 11, limit) != at + 16 || pdf.get(at + 16) != ' ') {
+                    throw new BrokenXref();
+                }
+                return switch (pdf.get(at + 17)) {
+                    case 'n' -> new XrefEntry(1, readInt(pdf, at, limit), 0);
+                    case 'f' -> new XrefEntry(0, 0, 0);
+                    default -> throw new BrokenXref();
+                };
+            }
+            return null;
+        }
+    }
+
+    /** The decoded rows of a cross-reference stream, /W giving the width of each of the three fields. */
+    private record XrefStream(ByteBuffer data, long[] widths, long[] index) implements XrefSection {
+        @Override
+        public XrefEntry entry(long number) {
+            long row = -1;
+            long rows = 0;
+            for (int i = 0; i < index.length && row < 0; i += 2) {
+                if (number >= index[i] && number < index[i] + index[i + 1]) {
+                    row = rows + number - index[i];
+                }
+                rows += index[i + 1];
+            }
+            if (row < 0) {
+                return null;
+            }
+            int width = (int) (widths[0] + widths[1] + widths[2]);
+            long at = row * width;
+            if (at + width > data.limit()) {
+                throw new BrokenXref();
+            }
+            // a type field of width zero means every entry is type 1
+            long type = widths[0] == 0 ? 1 : field((int) at, widths[0]);
+            long first = field((int) (at + widths[0]), widths[1]);
+            long second = field((int) (at + widths[0] + widths[1]), widths[2]);
+            return new XrefEntry(type, first, second);
+        }
+
+        private long field(int at, long width) {
+            long value = 0;
+            for (int i = 0; i < width; i++) {
+                value = (value << 8) | (data.get(at + i) & 0xff);
+            }
+            return value;
+        }
+    }
+
+    /** The objects of a compressed object stream, located by the "number offset" pairs it opens with. */
+    private record ObjectStream(ByteBuffer content, long[] numbers, int[] positions) {
+
+        /** Reads the object stream whose dictionary is at the location, or returns null if it cannot be read. */
+        static ObjectStream read(Location dict) {
+            ByteBuffer buf = dict.buf();
+            int start = dict.pos();
+            if (!regionMatches(buf, start, DICT)) {
+                return null;
+            }
+            int end = dictEnd(buf, start);
+            long count = readInt(buf, keyValue(buf, start, end, N), end);
+            long first = readInt(buf, keyValue(buf, start, end, FIRST), end);
+            ByteBuffer content = count < 0 || first < 0 ? null : streamContent(buf, start, end);
+            if (content == null) {
+                return null;
+            }
+            // offsets are counted from /First; each pair takes at least "1 0 " before it
+            int limit = content.limit();
+            int pairs = (int) Math.min(count, first / 3 + 1);
+            long[] numbers = new long[pairs];
+            int[] positions = new int[pairs];
+            int at = 0;
+            for (int i = 0; i < pairs; i++) {
+                at = skipWhitespace(content, at, limit);
+                long number = readInt(content, at, limit);
+                at = skipWhitespace(content, skipDigits(content, at, limit), limit);
+                long offset = readInt(content, at, limit);
+                at = skipDigits(content, at, limit);
+                if (number < 0 || offset < 0 || first + offset >= limit) {
+                    return new ObjectStream(content, Arrays.copyOf(numbers, i), Arrays.copyOf(positions, i));
+                }
+                numbers[i] = number;
+                positions[i] = skipWhitespace(content, (int) (first + offset), limit);
+            }
+            return new ObjectStream(content, numbers, positions);
+        }
+
+        /** The index-th object, or null if the stream holds a different object there. */
+        Location object(int index, long number) {
+            if (index < 0 || index >= numbers.length || numbers[index] != number) {
+                return null;
+            }
+            return new Location(content, positions[index]);
+        }
+    }
+
+    /**
+     * Finds objects in a file whose cross-reference data cannot be used, indexing every
+     * "N G obj" at the top level in one pass on first use. Stream data with a direct
+     * /Length is skipped, so bytes inside it are never taken for an object. Of several
+     * definitions of an object the one latest in the file wins, an object inside an
+     * object stream counting at the position of that stream.
+     */
+    private static final class ScannedObjects extends Objects {
+        private final ByteBuffer pdf;
+        private Map<Long, Location> objects;
+
+        ScannedObjects(ByteBuffer pdf) {
+            this.pdf = pdf;
+        }
+
+        @Override
+        Location resolve(long number) {
+            if (objects == null) {
+                objects = index(pdf);
+            }
+            Location location = objects.get(number);
+            if (location == null) {
+                throw unreadable("object " + number + " is not defined");
+            }
+            return location;
+        }
+
+        private static Map<Long, Location> index(ByteBuffer buf) {
+            Map<Long, Location> objects = new HashMap<>();
+            int limit = buf.limit();
+            int pos = 0;
+            while ((pos = indexOf(buf, OBJ, pos, limit)) >= 0) {
+                int after = pos + OBJ.length;
+                long number = after >= limit || isDelimiter(buf.get(after)) ? objectNumber(buf, pos) : -1;
+                pos = after;
+                if (number < 0) {
+                    continue;
+                }
+                int body = skipWhitespace(buf, after, limit);
+                objects.put(number, new Location(buf, body));
+                if (!regionMatches(buf, body, DICT)) {
+                    continue;
+                }
+                int end = dictEnd(buf, body);
+                int type = keyValue(buf, body, end, TYPE);
+                if (type >= 0 && startsWithName(buf, type, OBJ_STM, end)) {
+                    ObjectStream stream = ObjectStream.read(new Location(buf, body));
+                    for (int i = 0; stream != null && i < stream.numbers().length; i++) {
+                        objects.put(stream.numbers()[i], new Location(stream.content(), stream.positions()[i]));
+                    }
+                }
+                int data = streamData(buf, end);
+                long length = data < 0 ? -1 : directInteger(buf, keyValue(buf, body, end, LENGTH), end);
+                if (length >= 0 && data + length <= limit) {
+                    pos = (int) (data + length);
+                }
+            }
+            return objects;
+        }
+    }
+
+    /** The last trailer, or else the dictionary of the last cross-reference stream, in the file. */
+    private static Location lastTrailer(ByteBuffer buf) {
+        int limit = buf.limit();
+        int keyword = lastIndexOf(buf, TRAILER, limit);
+        if (keyword >= 0) {
+            return new Location(buf, skipWhitespace(buf, keyword + TRAILER.length, limit));
+        }
+        for (int pos = lastIndexOf(buf, XREF_TYPE, limit); pos >= 0; pos = lastIndexOf(buf, XREF_TYPE, pos)) {
+            if (startsWithName(buf, pos, XREF_TYPE, limit)) {
+                int start = dictStart(buf, pos);
+                return start < 0 ? null : new Location(buf, start);
+            }
+        }
+        return null;
+    }
+
+    /** Position of the first data byte of the stream whose dictionary ends at dictEnd, or -1 if none follows. */
+    private static int streamData(ByteBuffer buf, int dictEnd) {
+        int limit = buf.limit();
+        int keyword = skipWhitespace(buf, dictEnd, limit);
+        if (!startsWithName(buf, keyword, STREAM, limit)) {
+            return -1;
+        }
+        int data = keyword + STREAM.length;
+        if (data < limit && buf.get(data) == '\r') {
+            data++;
+        }
+        if (data < limit && buf.get(data) == '\n') {
+            data++;
+        }
+        return data;
+    }
+
+    /** The decoded data of the stream with the dictionary spanning [dictStart, dictEnd), or null. */
+    private static ByteBuffer streamContent(ByteBuffer buf, int dictStart, int dictEnd) {
+        int data = streamData(buf, dictEnd);
+        if (data < 0) {
+            return null;
+        }
+        long length = directInteger(buf, keyValue(buf, dictStart, dictEnd, LENGTH), dictEnd);
+        int end = length >= 0 && data + length <= buf.limit()
+                ? (int) (data + length)
+                : indexOf(buf, END_STREAM, data, buf.limit());
+        if (end < 0) {
+            return null;
+        }
+        if (keyValue(buf, dictStart, dictEnd, FILTER) < 0) {
+            return buf.slice(data, end - data);
+        }
+        if (indexOf(buf, FLATE, dictStart, dictEnd) < 0) {
+            return null;
+        }
+        ByteBuffer inflated = inflate(buf.slice(data, end - data));
+        int parms = keyValue(buf, dictStart, dictEnd, DECODE_PARMS);
+        if (inflated == null || parms < 0 || !regionMatches(buf, parms, DICT)) {
+            return inflated;
+        }
+        int parmsEnd = dictEnd(buf, parms);
+        long predictor = readInt(buf, keyValue(buf, parms, parmsEnd, PREDICTOR), parmsEnd);
+        long columns = readInt(buf, keyValue(buf, parms, parmsEnd, COLUMNS), parmsEnd);
+        if (predictor < 2) {
+            return inflated;
+        }
+        // only the PNG predictors on one byte per sample, as cross-reference streams use them
+        return predictor >= 10 ? unpredict(inflated, (int) Math.max(columns, 1)) : null;
+    }
+
+    private static ByteBuffer inflate(ByteBuffer compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished() && out.size() < MAX_INFLATED_STREAM) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(chunk, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Undoes PNG row filters: each row of the given width is preceded by a byte naming its filter. */
+    private static ByteBuffer unpredict(ByteBuffer data, int columns) {
+        int rows = data.limit() / (columns + 1);
+        byte[] out = new byte[rows * columns];
+        for (int r = 0; r < rows; r++) {
+            int in = r * (columns + 1);
+            int row = r * columns;
+            byte filter = data.get(in);
+            for (int c = 0; c < columns; c++) {
+                int left = c > 0 ? out[row + c - 1] & 0xff : 0;
+                int up = r > 0 ? out[row - columns + c] & 0xff : 0;
+                int upLeft = r > 0 && c > 0 ? out[row - columns + c - 1] & 0xff : 0;
+                int predicted = switch (filter) {
+                    case 0 -> 0;
+                    case 1 -> left;
+                    case 2 -> up;
+                    case 3 -> (left + up) / 2;
+                    case 4 -> paeth(left, up, upLeft);
+                    default -> throw new BrokenXref();
+                };
+                out[row + c] = (byte) (data.get(in + 1 + c) + predicted);
+            }
+        }
+        return ByteBuffer.wrap(out);
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int toLeft = Math.abs(estimate - left);
+        int toUp = Math.abs(estimate - up);
+        int toUpLeft = Math.abs(estimate - upLeft);
+        if (toLeft <= toUp && toLeft <= toUpLeft) {
+            return left;
+        }
+        return toUp <= toUpLeft ? up : upLeft;
+    }
+
+    /** The value of a top-level key of the dictionary at the given location. */
+    private static Location value(Location dict, byte[] key) {
+        ByteBuffer buf = dict.buf();
+        if (!regionMatches(buf, dict.pos(), DICT)) {
+            throw unreadable("expected a dictionary");
+        }
+        int value = keyValue(buf, dict.pos(), dictEnd(buf, dict.pos()), key);
+        if (value < 0) {
+            throw unreadable("no " + new String(key, StandardCharsets.US_ASCII) + " entry");
+        }
+        return new Location(buf, value);
+    }
+
+    private static long reference(Location dict, byte[] key) {
+        long number = referenceAt(value(dict, key));
+        if (number < 0) {
+            throw unreadable(new String(key, StandardCharsets.US_ASCII) + " is not a reference");
+        }
+        return number;
+    }
+
+    /** Parses an indirect reference "N G R", or returns -1 if there is none at the location. */
+    private static long referenceAt(Location location) {
+        ByteBuffer buf = location.buf();
+        int limit = buf.limit();
+        int pos = location.pos();
+        long number = readInt(buf, pos, limit);
+        int gen = skipWhitespace(buf, skipDigits(buf, pos, limit), limit);
+        int r = skipWhitespace(buf, skipDigits(buf, gen, limit), limit);
+        if (number < 0 || gen == r || r >= limit || buf.get(r) != 'R') {
+            return -1;
+        }
+        return number;
+    }
+
+    /** The value of a top-level key of the dictionary at the location, or -1; the location must hold a dictionary. */
+    private static int keyValue(Location dict, byte[] key) {
+        ByteBuffer buf = dict.buf();
+        return keyValue(buf, dict.pos(), dictEnd(buf, dict.pos()), key);
+    }
+
+    /** An integer written directly at pos, or -1 if there is none or it is an indirect reference. */
+    private static long directInteger(ByteBuffer buf, int pos, int limit) {
+        if (pos < 0 || referenceAt(new Location(buf, pos)) >= 0) {
+            return -1;
+        }
+        return readInt(buf, pos, limit);
+    }
+
+    /** Parses an array of non-negative integers at pos, or returns null if there is none. */
+    private static long[] integers(ByteBuffer buf, int pos, int limit) {
+        if (pos < 0 || pos >= limit || buf.get(pos) != '[') {
+            return null;
+        }
+        long[] values = new long[8];
+        int count = 0;
+        pos = skipWhitespace(buf, pos + 1, limit);
+        while (pos < limit && buf.get(pos) != ']') {
+            long value = readInt(buf, pos, limit);
+            if (value < 0) {
+                return null;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+            pos = skipWhitespace(buf, skipDigits(buf, pos, limit), limit);
+        }
+        return pos < limit ? Arrays.copyOf(values, count) : null;
+    }
+
+    /** Parses "N G obj" at pos and returns the position after it, or -1 if there is none. */
+    private static int objectBody(ByteBuffer buf, int pos, int limit) {
+        int gen = skipWhitespace(buf, skipDigits(buf, pos, limit), limit);
+        int keyword = skipWhitespace(buf, skipDigits(buf, gen, limit), limit);
+        if (gen == pos || keyword == gen || !startsWithName(buf, keyword, OBJ, limit)) {
+            return -1;
+        }
+        return skipWhitespace(buf, keyword + OBJ.length, limit);
+    }
+
+    /** Walks back to the "<<" that opens the dictionary containing pos. */
+    private static int dictStart(ByteBuffer buf, int pos) {
+        int depth = 0;
+        int floor = Math.max(0, pos - MAX_DICT_SCAN);
+        for (int i = pos - 1; i > floor; i--) {
+            byte b = buf.get(i);
+            byte prev = buf.get(i - 1);
+            if (b == '>' && prev == '>') {
+                depth++;
+                i--;
+            } else if (b == '<' && prev == '<') {
+                if (depth == 0) {
+                    return i - 1;
+                }
+                depth--;
+                i--;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the position just past the ">>" matching the "<<" at start. */
+    private static int dictEnd(ByteBuffer buf, int start) {
+        int depth = 0;
+        int limit = Math.min(buf.limit() - 1, start + MAX_DICT_SCAN);
+        for (int i = start; i < limit; i++) {
+            byte b = buf.get(i);
+            byte next = buf.get(i + 1);
+            if (b == '<' && next == '<') {
+                depth++;
+                i++;
+            } else if (b == '>' && next == '>') {
+                depth--;
+                i++;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+        }
+        return limit;
+    }
+
+    /** Position of the value of a top-level key in the dictionary spanning [start, end), or -1. */
+    private static int keyValue(ByteBuffer buf, int start, int end, byte[] key) {
+        int depth = 0;
+        for (int i = start; i < end - 1; i++) {
+            byte b = buf.get(i);
+            byte next = buf.get(i + 1);
+            if (b == '<' && next == '<') {
+                depth++;
+                i++;
+            } else if (b == '>' && next == '>') {
+                depth--;
+                i++;
+            } else if (depth == 1 && b == '/' && startsWithName(buf, i, key, end)) {
+                return skipWhitespace(buf, i + key.length, end);
+            }
+        }
+        return -1;
+    }
+
+    /** Parses the "N G " in front of the "obj" keyword at objPos, or -1 if there is none. */
+    private static long objectNumber(ByteBuffer buf, int objPos) {
+        int i = objPos - 1;
+        if (i < 0 || !isWhitespace(buf.get(i))) {
+            return -1;
+        }
+        i = skipWhitespaceBackwards(buf, i);
+        int generation = i;
+        i = skipDigitsBackwards(buf, i);
+        if (i == generation || i < 0 || !isWhitespace(buf.get(i))) {
+            return -1;
+        }
+        i = skipWhitespaceBackwards(buf, i);
+        int numberEnd = i + 1;
+        int numberStart = skipDigitsBackwards(buf, i) + 1;
+        if (numberStart >= numberEnd || (numberStart > 0 && !isDelimiter(buf.get(numberStart - 1)))) {
+            return -1;
+        }
+        return readInt(buf, numberStart, numberEnd);
+    }
+
+    private static int indexOf(ByteBuffer buf, byte[] needle, int from, int to) {
+        byte first = needle[0];
+        int last = to - needle.length;
+        for (int i = from; i <= last; i++) {
+            if (buf.get(i) == first && regionMatches(buf, i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Last occurrence starting before {@code before}, or -1. */
+    private static int lastIndexOf(ByteBuffer buf, byte[] needle, int before) {
+        byte first = needle[0];
+        for (int i = Math.min(before, buf.limit()) - 1; i >= 0; i--) {
+            if (buf.get(i) == first && regionMatches(buf, i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(ByteBuffer buf, int at, byte[] needle) {
+        if (at < 0 || at + needle.length > buf.limit()) {
+            return false;
+        }
+        for (int j = 1; j < needle.length; j++) {
+            if (buf.get(at + j) != needle[j]) {
+                return false;
+            }
+        }
+        return buf.get(at) == needle[0];
+    }
+
+    /** True if the token at pos is exactly the given one (not a longer one sharing its prefix). */
+    private static boolean startsWithName(ByteBuffer buf, int pos, byte[] name, int limit) {
+        if (!regionMatches(buf, pos, name)) {
+            return false;
+        }
+        int after = pos + name.length;
+        return after >= limit || isDelimiter(buf.get(after));
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return isWhitespace(b) || b == '/' || b == '<' || b == '>' || b == '[' || b == ']'
+                || b == '(' || b == ')' || b == '%';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0;
+    }
+
+    private static int skipWhitespace(ByteBuffer buf, int pos, int limit) {
+        while (pos < limit && isWhitespace(buf.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipDigits(ByteBuffer buf, int pos, int limit) {
+        while (pos < limit && Character.isDigit(buf.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWhitespaceBackwards(ByteBuffer buf, int pos) {
+        while (pos >= 0 && isWhitespace(buf.get(pos))) {
+            pos--;
+        }
+        return pos;
+    }
+
+    private static int skipDigitsBackwards(ByteBuffer buf, int pos) {
+        while (pos >= 0 && Character.isDigit(buf.get(pos))) {
+            pos--;
+        }
+        return pos;
+    }
+
+    private static long readInt(ByteBuffer buf, int pos, int limit) {
+        long value = 0;
+        int digits = 0;
+        while (pos >= 0 && pos < limit && Character.isDigit(buf.get(pos)) && digits < 10) {
+            value = value * 10 + (buf.get(pos) - '0');
+            pos++;
+            digits++;
+        }
+        return digits == 0 ? -1 : value;
+    }
+
+    private static RuntimeException unreadable(String reason) {
+        return new RuntimeException("Not a readable PDF: " + reason);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.smartprint.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request body of known length read from a stream, such as an object store download.
+ * Unlike {@code BodyPublishers.ofInputStream}, the stream is opened and read on a
+ * virtual thread, so a slow source never blocks the HttpClient's own threads, and
+ * chunks are only read as fast as the request is sent.
+ */
+public final class StreamBody {
+    private static final int CHUNK = 64 * 1024;
+
+    private StreamBody() {
+    }
+
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    public static HttpRequest.BodyPublisher of(Source source, long size) {
+        if (size == 0) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        // each subscription (a retried request, say) opens the stream again
+        return HttpRequest.BodyPublishers.fromPublisher(subscriber -> {
+            Chunks chunks = new Chunks(source, size, subscriber);
+            subscriber.onSubscribe(chunks);
+            chunks.subscribed();
+        }, size);
+    }
+
+    private static final class Chunks implements Flow.Subscription {
+        private final Source source;
+        private final long size;
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // at most one reader thread at a time; held at 1 until onSubscribe has returned,
+        // so the reader cannot signal onNext while the subscriber is still being set up
+        private final AtomicInteger wip = new AtomicInteger(1);
+        private volatile boolean done;
+        private InputStream in;
+        private long position;
+
+        Chunks(Source source, long size, Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.source = source;
+            this.size = size;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                done = true;
+                subscriber.onError(new IllegalArgumentException("non-positive request: " + n));
+                schedule();
+                return;
+            }
+            demand.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            schedule();
+        }
+
+        void subscribed() {
+            Thread.ofVirtual().name("stream-body").start(this::drain);
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                Thread.ofVirtual().name("stream-body").start(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    while (!done && demand.get() > 0 && position < size) {
+                        if (in == null) {
+                            in = source.open();
+                        }
+                        byte[] chunk = in.readNBytes((int) Math.min(CHUNK, size - position));
+                        if (chunk.length == 0) {
+                            throw new EOFException("Stream ended after " + position + " of " + size + " bytes");
+                        }
+                        position += chunk.length;
+                        demand.decrementAndGet();
+                        subscriber.onNext(ByteBuffer.wrap(chunk));
+                    }
+                    if (!done && position >= size) {
+                        done = true;
+                        close();
+                        subscriber.onComplete();
+                    }
+                } catch (IOException e) {
+                    done = true;
+                    close();
+                    subscriber.onError(e);
+                }
+                if (done) {
+                    close();
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void close() {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // nothing more to read from it either way
+                }
+                in = null;
+            }
+        }
+    }
+}
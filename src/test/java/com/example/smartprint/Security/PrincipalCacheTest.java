@@ -0,0 +1,76 @@
+package com.example.smartprint.Security;
+
+import com.example.smartprint.persistent.UserRole;
+import com.example.smartprint.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PrincipalCacheTest {
+
+    @Mock private UserRepository userRepo;
+
+    private final AuthPrincipal alice = new AuthPrincipal(1L, "a@x", UserRole.USER);
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(userRepo.findPrincipalByEmail("a@x")).thenReturn(Optional.of(alice));
+    }
+
+    @Test
+    void get_readsDatabaseOnlyOnce() {
+        PrincipalCache cache = new PrincipalCache(userRepo, 60_000, 10);
+
+        assertEquals(alice, cache.get("a@x").orElseThrow());
+        assertEquals(alice, cache.get("a@x").orElseThrow());
+
+        verify(userRepo, times(1)).findPrincipalByEmail("a@x");
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        PrincipalCache cache = new PrincipalCache(userRepo, 60_000, 10);
+        cache.get("a@x");
+
+        AuthPrincipal promoted = new AuthPrincipal(1L, "a@x", UserRole.PRINTER_OWNER);
+        when(userRepo.findPrincipalByEmail("a@x")).thenReturn(Optional.of(promoted));
+        cache.invalidate("a@x");
+
+        assertEquals(UserRole.PRINTER_OWNER, cache.get("a@x").orElseThrow().role());
+    }
+
+    @Test
+    void expiredEntriesAreReloaded() {
+        PrincipalCache cache = new PrincipalCache(userRepo, 0, 10);
+        cache.get("a@x");
+        cache.get("a@x");
+        verify(userRepo, times(2)).findPrincipalByEmail("a@x");
+    }
+
+    @Test
+    void evictsBeyondMaxSize() {
+        when(userRepo.findPrincipalByEmail(anyString()))
+                .thenAnswer(inv -> Optional.of(new AuthPrincipal(2L, inv.getArgument(0), UserRole.USER)));
+        PrincipalCache cache = new PrincipalCache(userRepo, 60_000, 2);
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void unknownUserIsNotCached() {
+        when(userRepo.findPrincipalByEmail("ghost")).thenReturn(Optional.empty());
+        PrincipalCache cache = new PrincipalCache(userRepo, 60_000, 10);
+        assertTrue(cache.get("ghost").isEmpty());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.smartprint.config;
+
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.repository.PrintJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+class IdSequenceInitializerTest {
+
+    @Mock private PrintJobRepository printJobRepository;
+
+    private IdSequenceInitializer initializer;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        initializer = new IdSequenceInitializer(printJobRepository);
+        when(printJobRepository.findMaxId()).thenReturn(100L);
+        when(printJobRepository.findIdSequenceValue(PrintJob.ID_SEQUENCE)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void createsTheSequencePastTheLargestId() {
+        initializer.alignPrintJobIds();
+
+        long nextVal = 100 + PrintJob.ID_ALLOCATION_SIZE + 1;
+        verify(printJobRepository).insertIdSequence(PrintJob.ID_SEQUENCE, nextVal);
+        verify(printJobRepository, never()).raiseIdSequence(anyString(), anyLong());
+    }
+
+    @Test
+    void raisesTheSequenceWhenAnotherNodeInsertedItFirst() {
+        long nextVal = 100 + PrintJob.ID_ALLOCATION_SIZE + 1;
+        when(printJobRepository.insertIdSequence(PrintJob.ID_SEQUENCE, nextVal))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        initializer.alignPrintJobIds();
+
+        verify(printJobRepository).raiseIdSequence(PrintJob.ID_SEQUENCE, nextVal);
+    }
+}
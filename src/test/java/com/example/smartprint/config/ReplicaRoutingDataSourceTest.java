@@ -0,0 +1,102 @@
+package com.example.smartprint.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    @Mock private DataSource primary;
+    @Mock private DataSource replicaA;
+    @Mock private DataSource replicaB;
+    @Mock private Connection primaryConnection;
+    @Mock private Connection connectionA;
+    @Mock private Connection connectionB;
+
+    private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replicaA.getConnection()).thenReturn(connectionA);
+        when(replicaB.getConnection()).thenReturn(connectionB);
+        routing = new ReplicaRoutingDataSource(primary, List.of(replicaA, replicaB), 10_000, new Clock() {
+            @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+            @Override public Clock withZone(ZoneId zone) { return this; }
+            @Override public Instant instant() { return now; }
+        });
+    }
+
+    @AfterEach
+    void clearTransaction() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+    }
+
+    private static void inTransaction(String name, boolean readOnly) {
+        TransactionSynchronizationManager.setCurrentTransactionName(name);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    @Test
+    void writesAndRepositoryReadsStayOnThePrimary() throws SQLException {
+        assertSame(primaryConnection, routing.getConnection());
+        inTransaction("com.example.smartprint.service.JobLeaseService.claim", false);
+        assertSame(primaryConnection, routing.getConnection());
+        // Spring Data's own read-only transaction around a lone repository call
+        inTransaction("org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById", true);
+        assertSame(primaryConnection, routing.getConnection());
+
+        verifyNoInteractions(replicaA, replicaB);
+    }
+
+    @Test
+    void readOnlyServiceTransactionsTakeTurnsOnTheReplicas() throws SQLException {
+        inTransaction("com.example.smartprint.service.PrinterService.getPrinterJobs", true);
+
+        assertSame(connectionA, routing.getConnection());
+        assertSame(connectionB, routing.getConnection());
+        assertSame(connectionA, routing.getConnection());
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void failingReplicaIsSkippedUntilItsRetryAndPrimaryCoversWhenAllAreDown() throws SQLException {
+        inTransaction("com.example.smartprint.service.UserService.getUserJobs", true);
+        when(replicaA.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        assertSame(connectionB, routing.getConnection());
+        assertSame(connectionB, routing.getConnection());
+        assertSame(connectionB, routing.getConnection());
+        verify(replicaA, times(1)).getConnection();
+        assertEquals(1, routing.healthyReplicas());
+
+        when(replicaB.getConnection()).thenThrow(new SQLException("Connection refused"));
+        assertSame(primaryConnection, routing.getConnection());
+        assertSame(primaryConnection, routing.getConnection());
+        assertEquals(0, routing.healthyReplicas());
+        assertEquals(2, routing.primaryFallbacks());
+
+        doReturn(connectionA).when(replicaA).getConnection();
+        now = now.plusMillis(10_001);
+        assertEquals(2, routing.healthyReplicas());
+        assertSame(connectionA, routing.getConnection());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.smartprint.persistent;
+
+import org.junit.jupiter.api.Test;
+
+import static com.example.smartprint.persistent.JobStatus.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobStatusTest {
+
+    @Test
+    void onlyTheDispatchLifecycleIsAllowed() {
+        assertTrue(QUEUED.canMoveTo(SENDING));
+        assertTrue(SENDING.canMoveTo(PRINTED));
+        assertTrue(SENDING.canMoveTo(QUEUED));
+        assertTrue(SENDING.canMoveTo(FAILED));
+
+        assertFalse(QUEUED.canMoveTo(PRINTED));
+        assertFalse(QUEUED.canMoveTo(QUEUED));
+        for (JobStatus next : values()) {
+            assertFalse(PRINTED.canMoveTo(next));
+            assertFalse(FAILED.canMoveTo(next));
+        }
+    }
+
+    @Test
+    void printJobRejectsAnInvalidTransition() {
+        PrintJob job = new PrintJob();
+        job.setStatus(QUEUED);
+        job.setStatus(SENDING);
+        job.setStatus(PRINTED);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> job.setStatus(QUEUED));
+        assertEquals("A print job cannot go from PRINTED to QUEUED", e.getMessage());
+        assertEquals(PRINTED, job.getStatus());
+    }
+}
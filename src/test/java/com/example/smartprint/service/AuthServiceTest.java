@@ -1,5 +1,6 @@
 package com.example.smartprint.service;
 
+import com.example.smartprint.Security.PrincipalCache;
 import com.example.smartprint.persistent.User;
 import com.example.smartprint.repository.UserRepository;
 import com.example.smartprint.utils.JwtUtils;
@@ -18,6 +19,7 @@ class AuthServiceTest {
     @Mock private UserRepository userRepo;
     @Mock private PasswordEncoder encoder;
     @Mock private JwtUtils jwtUtils;
+    @Mock private PrincipalCache principalCache;
 
     @InjectMocks private AuthService authService;
 
@@ -34,10 +36,12 @@ class AuthServiceTest {
 
         when(encoder.encode("raw")).thenReturn("ENC");
         when(jwtUtils.generateToken("foo@bar.com")).thenReturn("TOK");
+        when(userRepo.save(u)).thenReturn(u);
 
         String token = authService.register(u);
 
         verify(userRepo).save(u);
+        verify(principalCache).invalidate("foo@bar.com");
         assertEquals("ENC", u.getPassword());
         assertEquals("TOK", token);
     }
@@ -0,0 +1,128 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.dto.BulkJobRequest;
+import com.example.smartprint.dto.BulkJobResult;
+import com.example.smartprint.persistent.DeliveryOption;
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.persistent.User;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import com.example.smartprint.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkSubmissionServiceTest {
+
+    @Mock private FileStorageService fileStorageService;
+    @Mock private PageCountService pageCountService;
+    @Mock private PrintJobRepository printJobRepository;
+    @Mock private PrinterRepository printerRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private PrinterLoadService printerLoadService;
+    @Mock private JobEventService jobEventService;
+
+    private BulkSubmissionService bulkSubmissionService;
+    private final Printer printer = new Printer();
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        bulkSubmissionService = new BulkSubmissionService(fileStorageService, pageCountService, printJobRepository,
+                printerRepository, userRepository, printerLoadService, jobEventService);
+        ReflectionTestUtils.setField(bulkSubmissionService, "maxJobs", 100);
+        ReflectionTestUtils.setField(printer, "id", 3L);
+        ReflectionTestUtils.setField(printer, "costPerPage", 0.5);
+        when(userRepository.getReferenceById(7L)).thenReturn(new User());
+        when(printerRepository.findById(3L)).thenReturn(Optional.of(printer));
+        when(fileStorageService.completedUploads(anyList(), eq(7L))).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> new StoredFile("/blobs/" + id, 100, id, 2)).toList();
+        });
+        // another submission consumed the upload "taken" first
+        when(fileStorageService.saveWithUploads(anyList(), any(), any())).thenAnswer(invocation -> {
+            List<Object> jobs = invocation.getArgument(0);
+            Function<Object, List<String>> uploadIds = invocation.getArgument(1);
+            Consumer<List<Object>> save = invocation.getArgument(2);
+            List<Object> taken = jobs.stream().filter(job -> uploadIds.apply(job).contains("taken")).toList();
+            save.accept(jobs.stream().filter(job -> !taken.contains(job)).toList());
+            return taken;
+        });
+        when(pageCountService.countStoredPages(anyList())).thenAnswer(invocation -> 2 * invocation.<List<?>>getArgument(0).size());
+    }
+
+    private static BulkJobRequest request(String... uploadIds) {
+        return new BulkJobRequest(List.of(uploadIds), 3L, DeliveryOption.CLASS_DELIVERY, null);
+    }
+
+    @Test
+    void submit_savesGoodJobsTogetherAndReportsBadOnes() {
+        when(printJobRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<PrintJob> jobs = invocation.getArgument(0);
+            for (int i = 0; i < jobs.size(); i++) {
+                jobs.get(i).setId(100L + i);
+            }
+            return jobs;
+        });
+
+        List<BulkJobResult> results = bulkSubmissionService.submit(List.of(
+                request("a"), request("taken"), new BulkJobRequest(List.of("b"), 99L, DeliveryOption.CLASS_DELIVERY, null),
+                request("c", "d")), 7L);
+
+        assertEquals(4, results.size());
+        assertEquals(100L, results.get(0).job().id());
+        assertEquals("Upload already attached to a job: taken", results.get(1).error());
+        assertEquals("Printer not found", results.get(2).error());
+        assertEquals(101L, results.get(3).job().id());
+        assertEquals(4, results.get(3).job().totalPages());
+        assertEquals(2.0, results.get(3).job().totalCost());
+
+        ArgumentCaptor<List<PrintJob>> saved = ArgumentCaptor.forClass(List.class);
+        verify(printJobRepository, times(1)).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        verify(printerLoadService, times(2)).jobQueued(3L, 2);
+        verify(printerLoadService).jobQueued(3L, 4);
+        // the job left out at save time no longer counts towards the printer's queue
+        verify(printerLoadService).jobFinished(3L, 2, -1);
+        verify(jobEventService, times(2)).publish(any(), eq(JobStatus.QUEUED), eq(0), isNull());
+        verify(fileStorageService, never()).release(anyList());
+    }
+
+    @Test
+    void submit_keepsTheUploadsWhenTheBatchCannotBeSaved() {
+        when(printJobRepository.saveAll(anyList())).thenThrow(new RuntimeException("database down"));
+
+        assertThrows(RuntimeException.class, () -> bulkSubmissionService.submit(List.of(request("a"), request("b")), 7L));
+
+        // the sessions are consumed in the failed transaction, so they are still there to submit again
+        verify(fileStorageService, never()).release(anyList());
+        verify(printerLoadService, times(2)).jobFinished(3L, 2, -1);
+        verifyNoInteractions(jobEventService);
+    }
+
+    @Test
+    void submit_rejectsOversizedSubmissions() {
+        List<BulkJobRequest> tooMany = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            tooMany.add(request("u" + i));
+        }
+
+        assertThrows(RuntimeException.class, () -> bulkSubmissionService.submit(tooMany, 7L));
+        verifyNoInteractions(printJobRepository, fileStorageService);
+    }
+}
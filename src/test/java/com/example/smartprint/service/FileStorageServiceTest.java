@@ -0,0 +1,335 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.persistent.StoredBlob;
+import com.example.smartprint.persistent.UploadSession;
+import com.example.smartprint.repository.StoredBlobRepository;
+import com.example.smartprint.repository.UploadSessionRepository;
+import com.example.smartprint.storage.BlobStore;
+import com.example.smartprint.storage.LocalBlobStore;
+import com.example.smartprint.storage.S3BlobStore;
+import com.example.smartprint.support.StubS3Server;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.*;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FileStorageServiceTest {
+
+    // sha256("abc")
+    private static final String ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @TempDir
+    Path uploadDir;
+
+    @Mock private StoredBlobRepository blobRepository;
+    @Mock private UploadSessionRepository uploadSessionRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private JobLeaseService jobLeaseService;
+
+    private FileStorageService storage;
+    private LocalBlobStore blobStore;
+
+    @BeforeEach
+    void setup() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(blobRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(jobLeaseService.nodeId()).thenReturn("node-a");
+        blobStore = new LocalBlobStore(uploadDir.resolve("blobs"));
+        storage = storage(blobStore);
+    }
+
+    private FileStorageService storage(BlobStore store) throws IOException {
+        FileStorageService service = new FileStorageService(blobRepository, uploadSessionRepository, store,
+                new SimpleMeterRegistry(), transactionManager, jobLeaseService);
+        ReflectionTestUtils.setField(service, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "ioThreads", 2);
+        ReflectionTestUtils.setField(service, "maxUploadBytes", 1024L * 1024);
+        service.init();
+        return service;
+    }
+
+    private Path blob(String key) {
+        return blobStore.localPath(key).orElseThrow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.shutdown();
+    }
+
+    private static MockMultipartFile pdf(String name, String content) {
+        return new MockMultipartFile("files", name, "application/pdf", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Path> incoming() throws IOException {
+        try (Stream<Path> files = Files.list(uploadDir.resolve(".incoming"))) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void storeFiles_storesContentAddressedInOrder() throws Exception {
+        List<StoredFile> stored = storage.storeFiles(new MultipartFile[]{pdf("a.pdf", "abc"), pdf("b.pdf", "hello")});
+
+        assertEquals(2, stored.size());
+        assertEquals(ABC, stored.get(0).sha256());
+        assertEquals(3, stored.get(0).size());
+        assertEquals("ba/78/" + ABC, stored.get(0).key());
+        assertTrue(Files.exists(uploadDir.resolve("blobs/ba/78/" + ABC)));
+        assertEquals("hello", Files.readString(blob(stored.get(1).key())));
+        verify(blobRepository).addReference(eq(ABC), eq(stored.get(0).key()), eq(3L), any());
+        assertTrue(incoming().isEmpty());
+    }
+
+    @Test
+    void storeFile_reusesExistingBlob() throws Exception {
+        StoredFile first = storage.storeFile(pdf("a.pdf", "abc"));
+        StoredBlob blob = new StoredBlob();
+        blob.setPageCount(12);
+        when(blobRepository.findById(ABC)).thenReturn(Optional.of(blob));
+
+        StoredFile second = storage.storeFile(pdf("copy.pdf", "abc"));
+
+        assertEquals(first.key(), second.key());
+        assertEquals(12, second.pageCount());
+        verify(blobRepository, times(2)).addReference(eq(ABC), anyString(), eq(3L), any());
+        assertTrue(incoming().isEmpty());
+    }
+
+    @Test
+    void storeFiles_releasesReferencesOnFailure() throws Exception {
+        MockMultipartFile broken = new MockMultipartFile("files", "bad.pdf", "application/pdf", new byte[1]) {
+            @Override
+            public void transferTo(File dest) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        when(blobRepository.deleteIfUnreferenced(ABC)).thenReturn(1);
+
+        assertThrows(RuntimeException.class,
+                () -> storage.storeFiles(new MultipartFile[]{pdf("a.pdf", "abc"), broken}));
+
+        verify(blobRepository).removeReference(ABC);
+        assertFalse(Files.exists(blob(FileStorageService.blobKey(ABC))));
+    }
+
+    @Test
+    void release_deletesTheBlobBeforeTheRowLockIsGivenUp() throws Exception {
+        StoredFile stored = storage.storeFile(pdf("a.pdf", "abc"));
+        when(blobRepository.deleteIfUnreferenced(ABC)).thenAnswer(inv -> {
+            assertTrue(Files.exists(blob(stored.key())));
+            return 1;
+        });
+
+        storage.releaseJobFiles(List.of(stored.key()));
+
+        InOrder order = inOrder(transactionManager, blobRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(blobRepository).removeReference(ABC);
+        order.verify(blobRepository).deleteIfUnreferenced(ABC);
+        order.verify(transactionManager).commit(any());
+        assertFalse(Files.exists(blob(stored.key())));
+    }
+
+    @Test
+    void storeFile_putsBackABlobReleasedWhileItsReferenceWasAdded() throws Exception {
+        storage.storeFile(pdf("a.pdf", "abc"));
+        when(blobRepository.findById(ABC)).thenReturn(Optional.of(new StoredBlob()));
+        // the last holder's release deleted the blob just before this reference landed
+        when(blobRepository.addReference(eq(ABC), anyString(), anyLong(), any())).thenAnswer(inv -> {
+            Files.delete(blob(inv.getArgument(1)));
+            return 1;
+        });
+
+        StoredFile again = storage.storeFile(pdf("again.pdf", "abc"));
+
+        assertEquals("abc", Files.readString(blob(again.key())));
+        assertTrue(incoming().isEmpty());
+    }
+
+    // keeps the session in memory the way the repository's update queries would
+    private UploadSession openUpload(long size) throws IOException {
+        when(uploadSessionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        UploadSession session = storage.startUpload(1L, "thesis.pdf", size);
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+        when(uploadSessionRepository.advance(eq(session.getId()), anyLong(), anyLong(), any())).thenAnswer(inv -> {
+            session.setReceivedBytes(inv.getArgument(2));
+            return 1;
+        });
+        when(uploadSessionRepository.markCompleted(eq(session.getId()), anyString(), anyString(), any())).thenReturn(1);
+        return session;
+    }
+
+    private static InputStream bytes(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void resumableUpload_keepsBytesFromDroppedChunkAndResumes() throws Exception {
+        UploadSession session = openUpload(11);
+        storage.writeChunk(session.getId(), 1L, 0, bytes("hel"));
+
+        // the connection drops after two more bytes arrive
+        InputStream dropping = new FilterInputStream(bytes("lo")) {
+            private boolean sent;
+
+            @Override
+            public int read(byte[] b) throws IOException {
+                if (sent) {
+                    throw new IOException("connection reset");
+                }
+                sent = true;
+                return super.read(b);
+            }
+        };
+        assertThrows(IOException.class, () -> storage.writeChunk(session.getId(), 1L, 3, dropping));
+        assertEquals(5, storage.getUpload(session.getId(), 1L).getReceivedBytes());
+
+        ResponseStatusException stale = assertThrows(ResponseStatusException.class,
+                () -> storage.writeChunk(session.getId(), 1L, 3, bytes("lo world")));
+        assertEquals(409, stale.getStatusCode().value());
+
+        storage.writeChunk(session.getId(), 1L, 5, bytes(" world"));
+        UploadSession completed = storage.completeUpload(session.getId(), 1L);
+
+        assertEquals(UploadSession.STATUS_COMPLETED, completed.getStatus());
+        assertEquals("hello world", Files.readString(blob(completed.getBlobPath())));
+        verify(blobRepository).addReference(eq(completed.getSha256()), eq(completed.getBlobPath()), eq(11L), any());
+        assertTrue(incoming().isEmpty());
+    }
+
+    @Test
+    void resumableUpload_rejectsOverrunAndEarlyCompletion() throws Exception {
+        UploadSession session = openUpload(4);
+
+        assertThrows(RuntimeException.class, () -> storage.writeChunk(session.getId(), 1L, 0, bytes("abcde")));
+        assertThrows(ResponseStatusException.class, () -> storage.completeUpload(session.getId(), 1L));
+        assertThrows(RuntimeException.class, () -> storage.getUpload(session.getId(), 2L));
+    }
+
+    @Test
+    void resumableUpload_onlyTheNodeHoldingThePartialTakesChunks() throws Exception {
+        UploadSession session = openUpload(3);
+        assertEquals("node-a", session.getNodeId());
+
+        when(jobLeaseService.nodeId()).thenReturn("node-b");
+        ResponseStatusException elsewhere = assertThrows(ResponseStatusException.class,
+                () -> storage.writeChunk(session.getId(), 1L, 0, bytes("abc")));
+        assertEquals(409, elsewhere.getStatusCode().value());
+        assertThrows(ResponseStatusException.class, () -> storage.completeUpload(session.getId(), 1L));
+
+        when(jobLeaseService.nodeId()).thenReturn("node-a");
+        storage.writeChunk(session.getId(), 1L, 0, bytes("abc"));
+        assertEquals(UploadSession.STATUS_COMPLETED, storage.completeUpload(session.getId(), 1L).getStatus());
+    }
+
+    @Test
+    void expireUploads_deletesPartialsOfSessionsAnotherNodeExpired() throws Exception {
+        Path stale = Files.writeString(uploadDir.resolve(".incoming").resolve("gone.upload"), "abc");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        Path fresh = Files.writeString(uploadDir.resolve(".incoming").resolve("open.upload"), "abc");
+        ReflectionTestUtils.setField(storage, "uploadTtlHours", 24L);
+        when(uploadSessionRepository.findByUpdatedAtBefore(any(), any())).thenReturn(List.of());
+
+        storage.expireUploads();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+    }
+
+    @Test
+    void saveWithUploads_consumesTheSessionsWithTheSave() throws Exception {
+        UploadSession session = openUpload(3);
+        storage.writeChunk(session.getId(), 1L, 0, bytes("abc"));
+        storage.completeUpload(session.getId(), 1L);
+        StoredBlob blob = new StoredBlob();
+        blob.setPageCount(4);
+        when(blobRepository.findById(ABC)).thenReturn(Optional.of(blob));
+
+        List<StoredFile> files = storage.completedUploads(List.of(session.getId()), 1L);
+        assertEquals(List.of(new StoredFile(FileStorageService.blobKey(ABC), 3, ABC, 4)), files);
+        verify(uploadSessionRepository, never()).deleteInStatus(any(), any());
+
+        // a second job naming the same upload is left out; the session's reference becomes the first job's
+        when(uploadSessionRepository.lockInStatus(anyCollection(), eq(UploadSession.STATUS_COMPLETED)))
+                .thenReturn(List.of(session));
+        when(uploadSessionRepository.deleteInStatus(session.getId(), UploadSession.STATUS_COMPLETED)).thenReturn(1);
+        List<List<String>> saved = new ArrayList<>();
+        List<String> job = List.of(session.getId());
+        List<String> duplicate = List.of(session.getId());
+        List<List<String>> leftOut = storage.saveWithUploads(List.of(job, duplicate), ids -> ids, saved::addAll);
+
+        assertEquals(List.of(job), saved);
+        assertSame(duplicate, leftOut.get(0));
+        verify(uploadSessionRepository, times(1)).deleteInStatus(session.getId(), UploadSession.STATUS_COMPLETED);
+        verify(blobRepository, times(1)).addReference(eq(ABC), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void saveWithUploads_rollsTheSessionsBackWhenTheSaveFails() {
+        UploadSession session = new UploadSession();
+        session.setId("u1");
+        when(uploadSessionRepository.lockInStatus(anyCollection(), eq(UploadSession.STATUS_COMPLETED)))
+                .thenReturn(List.of(session));
+        when(uploadSessionRepository.deleteInStatus("u1", UploadSession.STATUS_COMPLETED)).thenReturn(1);
+
+        assertThrows(RuntimeException.class, () -> storage.saveWithUploads(List.of(List.of("u1")), ids -> ids,
+                jobs -> {
+                    throw new RuntimeException("database down");
+                }));
+
+        // the delete ran in the save's transaction, which is rolled back
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void storeFile_putsBlobsIntoAnObjectStore() throws Exception {
+        Path bucket = Files.createDirectories(uploadDir.resolve("s3"));
+        try (StubS3Server s3 = new StubS3Server(bucket);
+             S3BlobStore objectStore = new S3BlobStore(URI.create(s3.endpoint()), "documents", StubS3Server.REGION,
+                     StubS3Server.ACCESS_KEY, StubS3Server.SECRET_KEY, "blobs/", Duration.ofSeconds(2), Duration.ofSeconds(10))) {
+            storage.shutdown();
+            storage = storage(objectStore);
+            when(blobRepository.deleteIfUnreferenced(ABC)).thenReturn(1);
+
+            StoredFile stored = storage.storeFile(pdf("a.pdf", "abc"));
+
+            assertEquals("ba/78/" + ABC, stored.key());
+            assertTrue(s3.hasObject("documents", "blobs/ba/78/" + ABC));
+            assertFalse(Files.exists(uploadDir.resolve("blobs")));
+            assertTrue(incoming().isEmpty());
+
+            storage.release(List.of(stored));
+            assertFalse(s3.hasObject("documents", "blobs/ba/78/" + ABC));
+        }
+    }
+}
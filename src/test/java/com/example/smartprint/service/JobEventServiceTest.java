@@ -0,0 +1,182 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.Security.AuthPrincipal;
+import com.example.smartprint.controller.PrinterController;
+import com.example.smartprint.dto.JobState;
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.persistent.User;
+import com.example.smartprint.persistent.UserRole;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import com.example.smartprint.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class JobEventServiceTest {
+
+    @Mock private PrinterRepository printerRepository;
+    @Mock private PrintJobRepository printJobRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private PrinterDirectory printerDirectory;
+    @Mock private UserService userService;
+
+    private static final UsernamePasswordAuthenticationToken OWNER =
+            new UsernamePasswordAuthenticationToken("owner@x", null);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JobEventService events;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        events = new JobEventService(new ObjectMapper().findAndRegisterModules(), printJobRepository, meterRegistry);
+        ReflectionTestUtils.setField(events, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(events, "maxPending", 16);
+        when(printerRepository.existsById(3L)).thenReturn(true);
+        when(printerRepository.existsByIdAndOwnerId(3L, 5L)).thenReturn(true);
+        when(userService.getPrincipal("owner@x")).thenReturn(new AuthPrincipal(5L, "owner@x", UserRole.PRINTER_OWNER));
+        PrinterService printerService = new PrinterService(printerRepository, printJobRepository, userRepository,
+                events, printerDirectory);
+        mvc = MockMvcBuilders.standaloneSetup(new PrinterController(printerService, userService)).build();
+    }
+
+    @AfterEach
+    void teardown() {
+        events.shutdown();
+    }
+
+    private static PrintJob job(long id, long printerId, long userId) {
+        PrintJob job = new PrintJob();
+        job.setId(id);
+        Printer printer = new Printer();
+        ReflectionTestUtils.setField(printer, "id", printerId);
+        job.setPrinter(printer);
+        User user = new User();
+        ReflectionTestUtils.setField(user, "id", userId);
+        job.setUser(user);
+        return job;
+    }
+
+    private MockHttpServletResponse subscribePrinter(long printerId) throws Exception {
+        return mvc.perform(get("/api/printers/" + printerId + "/jobs/events").principal(OWNER))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        return content;
+    }
+
+    @Test
+    void publish_reachesPrinterStreamInOrder() throws Exception {
+        MockHttpServletResponse stream = subscribePrinter(3L);
+        assertEquals(1, events.subscriberCount());
+        assertEquals(1, meterRegistry.get("smartprint.events.subscribers").gauge().value());
+
+        PrintJob job = job(7L, 3L, 5L);
+        events.publish(job, JobStatus.SENDING, 0, null);
+        events.publish(job, JobStatus.QUEUED, 1, "timeout");
+        events.publish(job, JobStatus.PRINTED, 2, null);
+
+        String content = awaitContent(stream, "PRINTED");
+        assertTrue(content.contains("event:job"), content);
+        assertTrue(content.contains("\"jobId\":7"), content);
+        assertTrue(content.contains("\"lastError\":\"timeout\""), content);
+        int sending = content.indexOf("SENDING");
+        int queued = content.indexOf("QUEUED");
+        int printed = content.indexOf("PRINTED");
+        assertTrue(sending >= 0 && sending < queued && queued < printed, content);
+    }
+
+    @Test
+    void publish_skipsOtherPrintersStreams() throws Exception {
+        when(printerRepository.existsByIdAndOwnerId(4L, 5L)).thenReturn(true);
+        MockHttpServletResponse other = subscribePrinter(4L);
+        MockHttpServletResponse mine = subscribePrinter(3L);
+
+        events.publish(job(7L, 3L, 5L), JobStatus.PRINTED, 1, null);
+
+        assertTrue(awaitContent(mine, "PRINTED").contains("PRINTED"));
+        assertFalse(other.getContentAsString().contains("\"jobId\""));
+    }
+
+    @Test
+    void pollChanges_pushesChangesMadeOnOtherNodesOnce() throws Exception {
+        MockHttpServletResponse stream = subscribePrinter(3L);
+        // already there when the stream opened
+        when(printJobRepository.findWatchedJobs(any(), any(), any(), any())).thenReturn(List.of(
+                new JobState(7L, 5L, 3L, JobStatus.QUEUED, 0, null),
+                new JobState(8L, 5L, 3L, JobStatus.SENDING, 0, null)));
+        events.pollChanges();
+
+        // another node dispatched 7, printed 8 and took job 9; this node sent 9's SENDING itself
+        events.publish(job(9L, 3L, 5L), JobStatus.SENDING, 0, null);
+        when(printJobRepository.findWatchedJobs(any(), any(), any(), any())).thenReturn(List.of(
+                new JobState(7L, 5L, 3L, JobStatus.SENDING, 0, null),
+                new JobState(8L, 5L, 3L, JobStatus.PRINTED, 1, null),
+                new JobState(9L, 5L, 3L, JobStatus.SENDING, 0, null)));
+        events.pollChanges();
+        events.pollChanges();
+
+        String content = awaitContent(stream, "PRINTED");
+        assertTrue(content.contains("{\"jobId\":7,\"status\":\"SENDING\""), content);
+        assertTrue(content.contains("{\"jobId\":8,\"status\":\"PRINTED\""), content);
+        assertFalse(content.contains("{\"jobId\":7,\"status\":\"QUEUED\""), content);
+        assertEquals(content.indexOf("\"jobId\":9"), content.lastIndexOf("\"jobId\":9"), content);
+        assertEquals(content.indexOf("\"jobId\":8"), content.lastIndexOf("\"jobId\":8"), content);
+    }
+
+    @Test
+    void subscribe_rejectsUnknownPrinter() {
+        assertThrows(RuntimeException.class, () -> new PrinterService(printerRepository, printJobRepository,
+                userRepository, events, printerDirectory).streamPrinterJobEvents(9L, 5L));
+        assertEquals(0, events.subscriberCount());
+    }
+
+    @Test
+    void subscribe_rejectsPrinterOfAnotherOwner() throws Exception {
+        when(printerRepository.existsById(4L)).thenReturn(true);
+
+        mvc.perform(get("/api/printers/4/jobs/events").principal(OWNER))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/api/printers/4/jobs").principal(OWNER))
+                .andExpect(status().isForbidden());
+        assertEquals(0, events.subscriberCount());
+        verifyNoInteractions(printJobRepository);
+    }
+
+    @Test
+    void getPrinterJobs_letsAnyPrinterOwnerSeeAnUnownedPrinter() throws Exception {
+        when(printerRepository.existsByIdAndOwnerIsNull(6L)).thenReturn(true);
+
+        mvc.perform(get("/api/printers/6/jobs").principal(OWNER))
+                .andExpect(status().isOk());
+    }
+}
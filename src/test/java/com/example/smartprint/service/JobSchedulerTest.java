@@ -0,0 +1,150 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.dto.DueJob;
+import com.example.smartprint.persistent.DeliveryOption;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobSchedulerTest {
+
+    private static final double SECONDS_PER_PAGE = 2;
+    private static final Instant T0 = Instant.parse("2026-01-01T09:00:00Z");
+
+    private JobScheduler scheduler;
+
+    @BeforeEach
+    void setup() {
+        scheduler = new JobScheduler();
+        ReflectionTestUtils.setField(scheduler, "fastLaneMaxPages", 10);
+        ReflectionTestUtils.setField(scheduler, "secondsPerPage", SECONDS_PER_PAGE);
+        ReflectionTestUtils.setField(scheduler, "agingFactor", 0.25);
+        ReflectionTestUtils.setField(scheduler, "deliverySlackSeconds", 300.0);
+    }
+
+    private static DueJob job(long id, int pages, DeliveryOption delivery, long submittedSecondsAgo) {
+        return new DueJob(id, pages, delivery, T0.minusSeconds(submittedSecondsAgo));
+    }
+
+    @Test
+    void pick_putsFastLaneAheadOfLargeJobs() {
+        List<DueJob> due = List.of(
+                job(1, 500, DeliveryOption.SELF_COLLECTION, 60),
+                job(2, 40, DeliveryOption.SELF_COLLECTION, 50),
+                job(3, 2, DeliveryOption.SELF_COLLECTION, 10),
+                job(4, 8, DeliveryOption.SELF_COLLECTION, 20));
+
+        assertEquals(List.of(4L, 3L, 2L, 1L), scheduler.pick(due, 10, T0));
+        assertEquals(List.of(4L, 3L), scheduler.pick(due, 2, T0));
+    }
+
+    @Test
+    void pick_agingLetsALongWaitingLargeJobThrough() {
+        DueJob thesis = job(1, 500, DeliveryOption.SELF_COLLECTION, 3999);
+        DueJob assignment = job(2, 2, DeliveryOption.SELF_COLLECTION, 0);
+        assertEquals(List.of(2L, 1L), scheduler.pick(List.of(thesis, assignment), 2, T0));
+
+        // 500 pages print in 1000s, worth 4000s of waiting at an aging factor of 0.25
+        thesis = job(1, 500, DeliveryOption.SELF_COLLECTION, 4001);
+        assertEquals(List.of(1L, 2L), scheduler.pick(List.of(thesis, assignment), 2, T0));
+    }
+
+    @Test
+    void pick_letsClassDeliveriesYieldToSelfCollection() {
+        List<DueJob> due = List.of(
+                job(1, 3, DeliveryOption.CLASS_DELIVERY, 600),
+                job(2, 3, DeliveryOption.SELF_COLLECTION, 0));
+
+        assertEquals(List.of(2L, 1L), scheduler.pick(due, 2, T0));
+    }
+
+    /**
+     * Discrete-event simulation of one printer through a busy day: mostly short
+     * assignments, some handouts and the occasional thesis, printed one job at a time.
+     * First-come-first-served is compared with the scheduler.
+     */
+    @Test
+    void simulation_reducesMeanAndP90TimeToPrint() {
+        List<SimJob> arrivals = arrivals(new Random(42), 3000);
+
+        List<Double> fifo = simulate(arrivals, (due, now) -> due.get(0).id());
+        List<Double> scheduled = simulate(arrivals, (due, now) -> scheduler.pick(due, 1, now).get(0));
+
+        double fifoMean = mean(fifo), scheduledMean = mean(scheduled);
+        double fifoP90 = percentile(fifo, 0.9), scheduledP90 = percentile(scheduled, 0.9);
+        assertTrue(scheduledMean * 2 < fifoMean, "mean " + scheduledMean + "s vs FIFO " + fifoMean + "s");
+        assertTrue(scheduledP90 * 2 < fifoP90, "p90 " + scheduledP90 + "s vs FIFO " + fifoP90 + "s");
+
+        // aging bounds what the large jobs pay for it
+        double fifoLargest = largeJobsWorst(arrivals, fifo), scheduledLargest = largeJobsWorst(arrivals, scheduled);
+        assertTrue(scheduledLargest < fifoLargest * 2,
+                "worst large job " + scheduledLargest + "s vs FIFO " + fifoLargest + "s");
+    }
+
+    private record SimJob(long id, double arrival, int pages, DeliveryOption delivery) {
+    }
+
+    private static List<SimJob> arrivals(Random random, int count) {
+        List<SimJob> jobs = new ArrayList<>();
+        double now = 0;
+        for (int i = 0; i < count; i++) {
+            now += -Math.log(1 - random.nextDouble()) * 50;   // one job every 50s, the printer busy ~80% of the time
+            int kind = random.nextInt(100);
+            int pages = kind < 80 ? 1 + random.nextInt(10)           // assignments
+                    : kind < 97 ? 11 + random.nextInt(50)             // handouts and reports
+                    : 150 + random.nextInt(350);                      // theses
+            DeliveryOption delivery = random.nextInt(4) == 0 ? DeliveryOption.CLASS_DELIVERY : DeliveryOption.SELF_COLLECTION;
+            jobs.add(new SimJob(i, now, pages, delivery));
+        }
+        return jobs;
+    }
+
+    // time from submission until each job has printed, indexed by job id
+    private static List<Double> simulate(List<SimJob> arrivals, BiFunction<List<DueJob>, Instant, Long> next) {
+        Double[] timeToPrint = new Double[arrivals.size()];
+        List<DueJob> waiting = new ArrayList<>();
+        int arrived = 0;
+        double now = 0;
+        while (arrived < arrivals.size() || !waiting.isEmpty()) {
+            if (waiting.isEmpty()) {
+                now = Math.max(now, arrivals.get(arrived).arrival());
+            }
+            while (arrived < arrivals.size() && arrivals.get(arrived).arrival() <= now) {
+                SimJob job = arrivals.get(arrived++);
+                waiting.add(new DueJob(job.id(), job.pages(), job.delivery(), at(job.arrival())));
+            }
+            long id = next.apply(waiting, at(now));
+            waiting.removeIf(job -> job.id() == id);
+            SimJob job = arrivals.get((int) id);
+            now += job.pages() * SECONDS_PER_PAGE;
+            timeToPrint[(int) id] = now - job.arrival();
+        }
+        return List.of(timeToPrint);
+    }
+
+    private static Instant at(double seconds) {
+        return T0.plusMillis((long) (seconds * 1000));
+    }
+
+    private static double largeJobsWorst(List<SimJob> arrivals, List<Double> timeToPrint) {
+        return arrivals.stream().filter(job -> job.pages() >= 150)
+                .mapToDouble(job -> timeToPrint.get((int) job.id())).max().orElse(0);
+    }
+
+    private static double mean(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    }
+
+    private static double percentile(List<Double> values, double p) {
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        return sorted[(int) Math.ceil(p * sorted.length) - 1];
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.SmartPrintApplication;
+import com.example.smartprint.persistent.DeliveryOption;
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.persistent.User;
+import com.example.smartprint.persistent.UserRole;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import com.example.smartprint.repository.UserRepository;
+import com.example.smartprint.support.StubPrintServer;
+import com.example.smartprint.support.TestPdfs;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several SmartPrint nodes, each a full application context, dispatching from one
+ * shared in-memory database to one stub Pi. Every job must reach the Pi exactly once,
+ * and never more than the printer's cap at a time, however many nodes send to it.
+ */
+class MultiNodeDispatchTest {
+
+    private static final String PI_ADDRESS = "127.0.0.51";
+    private static final long PI_LATENCY_MS = 300;
+    // below the three nodes' six workers for the printer together
+    private static final int MAX_SENDING = 3;
+
+    @TempDir
+    Path uploadDir;
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private StubPrintServer pi;
+    private Path document;
+
+    @BeforeEach
+    void setup() throws Exception {
+        pi = new StubPrintServer(PI_ADDRESS, PrinterHealthService.PRINTER_PORT,
+                StubPrintServer.Behavior.NORMAL.withLatencyMs(PI_LATENCY_MS));
+        document = Files.writeString(uploadDir.resolve("handout.pdf"), TestPdfs.pdf(2));
+    }
+
+    @AfterEach
+    void teardown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        pi.close();
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        // as command-line arguments, so they win over application.properties
+        ConfigurableApplicationContext node = new SpringApplicationBuilder(SmartPrintApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:multinode;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                // MySQL's SQL, as in production: H2's own dialect would drop SKIP LOCKED from the claim
+                "--spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+                "--spring.jpa.properties.jakarta.persistence.database-major-version=8",
+                // the first node creates the schema; under this dialect H2 reports it back incompletely
+                "--spring.jpa.hibernate.ddl-auto=" + (nodes.isEmpty() ? "update" : "none"),
+                "--logging.level.org.hibernate.SQL=INFO",
+                "--logging.level.org.hibernate.type=INFO",
+                "--server.port=0",
+                "--file.upload-dir=" + uploadDir,
+                "--print.dispatch.node-id=" + nodeId,
+                "--print.dispatch.poll-interval-ms=20",
+                "--print.dispatch.lease-ms=3000",
+                "--print.dispatch.lease-renew-ms=500",
+                "--print.dispatch.reclaim-interval-ms=200",
+                "--print.dispatch.max-sending-per-printer=" + MAX_SENDING,
+                "--print.load.resync-ms=200",
+                "--printer.health.probe-interval-ms=500");
+        nodes.add(node);
+        return node;
+    }
+
+    private PrintJob job(Printer printer, User user) {
+        PrintJob job = new PrintJob();
+        job.setUser(user);
+        job.setPrinter(printer);
+        job.setFilePaths(List.of(document.toString()));
+        job.setDeliveryOption(DeliveryOption.SELF_COLLECTION);
+        job.setStatus(JobStatus.QUEUED);
+        job.setTotalPages(1);
+        job.setCreatedAt(Instant.now());
+        job.setNextAttemptAt(job.getCreatedAt());
+        return job;
+    }
+
+    private static long dispatched(ConfigurableApplicationContext node) {
+        return node.getBean(MeterRegistry.class).find("smartprint.dispatch").timers().stream()
+                .mapToLong(Timer::count).sum();
+    }
+
+    // submit a batch of jobs and wait until the nodes have printed all of them
+    private void printAll(PrintJobRepository jobs, Printer printer, User user, int count) throws InterruptedException {
+        List<PrintJob> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(job(printer, user));
+        }
+        long printedBefore = printed(jobs);
+        jobs.saveAll(batch);
+        awaitPrinted(jobs, printedBefore + count);
+    }
+
+    private static long printed(PrintJobRepository jobs) {
+        return jobs.findAll().stream().filter(job -> JobStatus.PRINTED.equals(job.getStatus())).count();
+    }
+
+    private static void awaitPrinted(PrintJobRepository jobs, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (printed(jobs) < expected) {
+            assertTrue(System.currentTimeMillis() < deadline, "only " + printed(jobs) + " of " + expected + " printed");
+            Thread.sleep(50);
+        }
+    }
+
+    // waits for the node's next recount from the database; dispatch latency is the node's own
+    private static void awaitQueueDepth(ConfigurableApplicationContext node, Long printerId, int jobs, long pages)
+            throws InterruptedException {
+        PrinterLoadService loads = node.getBean(PrinterLoadService.class);
+        long deadline = System.currentTimeMillis() + 5_000;
+        PrinterLoadService.LoadSnapshot load = loads.snapshot(printerId);
+        while (load.queuedJobs() != jobs || load.pagesOutstanding() != pages) {
+            assertTrue(System.currentTimeMillis() < deadline, "queue depth stuck at " + load);
+            Thread.sleep(50);
+            load = loads.snapshot(printerId);
+        }
+    }
+
+    @Test
+    void nodesShareTheQueueWithoutDoublePrintingAndReclaimADeadNodesJobs() throws Exception {
+        ConfigurableApplicationContext nodeA = startNode("node-a");
+        PrintJobRepository jobs = nodeA.getBean(PrintJobRepository.class);
+        User user = new User();
+        user.setName("Lab admin");
+        user.setEmail("lab@example.edu");
+        user.setPassword("x");
+        user.setRole(UserRole.PRINTER_OWNER);
+        user = nodeA.getBean(UserRepository.class).save(user);
+        Printer printer = new Printer();
+        ReflectionTestUtils.setField(printer, "name", "Lab");
+        ReflectionTestUtils.setField(printer, "ipAddress", PI_ADDRESS);
+        printer = nodeA.getBean(PrinterRepository.class).save(printer);
+
+        printAll(jobs, printer, user, 30);
+
+        ConfigurableApplicationContext nodeB = startNode("node-b");
+        ConfigurableApplicationContext nodeC = startNode("node-c");
+        long[] before = {dispatched(nodeA), dispatched(nodeB), dispatched(nodeC)};
+        printAll(jobs, printer, user, 30);
+
+        assertTrue(dispatched(nodeB) > before[1] && dispatched(nodeC) > before[2], "every node should dispatch");
+        assertTrue(pi.maxInFlight() <= MAX_SENDING, pi.maxInFlight() + " jobs were on the wire to one printer at once");
+
+        // a node died mid-dispatch: its job comes back once the lease runs out; a live node's job stays put
+        PrintJob orphan = job(printer, user);
+        orphan.setStatus(JobStatus.SENDING);
+        orphan.setLeaseOwner("node-dead");
+        orphan.setLeaseExpiresAt(Instant.now().minusSeconds(1));
+        PrintJob leased = job(printer, user);
+        leased.setStatus(JobStatus.SENDING);
+        leased.setLeaseOwner("node-busy");
+        leased.setLeaseExpiresAt(Instant.now().plusSeconds(600));
+        jobs.saveAll(List.of(orphan, leased));
+
+        awaitPrinted(jobs, 61);
+        Thread.sleep(500);
+        assertEquals(JobStatus.SENDING, jobs.findById(leased.getId()).orElseThrow().getStatus());
+        assertEquals(61, printed(jobs));
+        assertEquals(61, pi.filesReceived(), "each job reaches the Pi exactly once");
+
+        // jobs were saved straight to the database, so only the recount tells a node about them;
+        // the leased job is all that is left waiting
+        for (ConfigurableApplicationContext node : List.of(nodeA, nodeB, nodeC)) {
+            awaitQueueDepth(node, printer.getId(), 1, 1);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.repository.StoredBlobRepository;
+import com.example.smartprint.storage.LocalBlobStore;
+import com.example.smartprint.support.TestPdfs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PageCountServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final StoredBlobRepository blobRepository = mock(StoredBlobRepository.class);
+    private PageCountService pageCountService;
+
+    @BeforeEach
+    void setup() {
+        pageCountService = new PageCountService(blobRepository, new LocalBlobStore(tempDir),
+                new SimpleMeterRegistry(), 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pageCountService.shutdown();
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void countStoredPages_reusesResultForIdenticalContent() throws Exception {
+        write("handout.pdf", TestPdfs.pdf(6));
+        write("handout-again.pdf", TestPdfs.pdf(6));
+
+        assertEquals(6, pageCountService.countStoredPages(List.of(new StoredFile("handout.pdf", 1, "handout-hash", null))));
+        assertEquals(6, pageCountService.countStoredPages(
+                List.of(new StoredFile("handout-again.pdf", 1, "handout-hash", null))));
+        assertEquals(1, pageCountService.cacheHits());
+        assertEquals(1, pageCountService.cacheMisses());
+    }
+
+    @Test
+    void countStoredPages_skipsBlobsCountedBefore() throws Exception {
+        Path fresh = write("fresh.pdf", TestPdfs.pdf(4));
+        List<StoredFile> files = List.of(
+                new StoredFile(fresh.getFileName().toString(), 1, "fresh-hash", null),
+                new StoredFile("missing.pdf", 1, "known-hash", 10));
+
+        assertEquals(14, pageCountService.countStoredPages(files));
+        verify(blobRepository).recordPageCount("fresh-hash", 4);
+        verify(blobRepository, never()).recordPageCount(eq("known-hash"), anyInt());
+    }
+
+    @Test
+    void countStoredPages_streamsBlobsWithoutALocalFile() throws Exception {
+        write("remote.pdf", TestPdfs.pdf(5));
+        // a store like S3 that can only hand out streams
+        LocalBlobStore streamOnly = new LocalBlobStore(tempDir) {
+            @Override
+            public Optional<Path> localPath(String key) {
+                return Optional.empty();
+            }
+        };
+        PageCountService remote = new PageCountService(blobRepository, streamOnly, new SimpleMeterRegistry(), 2, 10);
+        try {
+            assertEquals(5, remote.countStoredPages(List.of(new StoredFile("remote.pdf", 1, "remote-hash", null))));
+            verify(blobRepository).recordPageCount("remote-hash", 5);
+        } finally {
+            remote.shutdown();
+        }
+    }
+
+    @Test
+    void countStoredPages_rejectsUnreadableDocuments() throws Exception {
+        write("scan.pdf", "%PDF-1.4\n(truncated by the scanner");
+        List<StoredFile> files = List.of(new StoredFile("scan.pdf", 1, "scan-hash", null));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pageCountService.countStoredPages(files));
+        assertEquals("Not a readable PDF: no trailer", e.getMessage());
+        verify(blobRepository, never()).recordPageCount(any(), anyInt());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.persistent.JobStatus;
+import com.example.smartprint.persistent.PrintJob;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.repository.PrintJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PrintDispatcherTest {
+
+    @Mock private PrintJobRepository printJobRepository;
+    @Mock private PrintService printService;
+    @Mock private PrinterHealthService printerHealthService;
+    @Mock private PrinterLoadService printerLoadService;
+    @Mock private JobEventService jobEventService;
+    @Mock private JobLeaseService jobLeaseService;
+    @Mock private FileStorageService fileStorageService;
+    @Spy private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks private PrintDispatcher dispatcher;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "backoffBaseMs", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "backoffMaxMs", 5000L);
+        ReflectionTestUtils.setField(dispatcher, "workersPerPrinter", 1);
+        ReflectionTestUtils.setField(dispatcher, "queuePerPrinter", 1);
+        when(jobLeaseService.nodeId()).thenReturn("node-a");
+        when(printJobRepository.recordAttempt(any(), eq("node-a"), any(), anyInt(), any(), any())).thenReturn(1);
+    }
+
+    private PrintJob job(int attempts) {
+        PrintJob job = new PrintJob();
+        job.setId(7L);
+        job.setAttempts(attempts);
+        job.setLeaseOwner("node-a");
+        job.setFilePaths(List.of("ab/cd/abcd"));
+        Printer printer = new Printer();
+        ReflectionTestUtils.setField(printer, "id", 3L);
+        job.setPrinter(printer);
+        when(printJobRepository.findWithFilePathsById(7L)).thenReturn(Optional.of(job));
+        return job;
+    }
+
+    @Test
+    void dispatch_marksPrintedOnSuccess() {
+        PrintJob job = job(0);
+
+        dispatcher.dispatch(7L);
+
+        verify(printService).sendToPrinter(job);
+        verify(printerHealthService).recordSuccess(3L);
+        verify(printJobRepository).recordAttempt(7L, "node-a", JobStatus.PRINTED, 1, null, null);
+        verify(printerLoadService).jobFinished(eq(3L), eq(0), longThat(ms -> ms >= 0));
+        verify(fileStorageService).releaseJobFiles(List.of("ab/cd/abcd"));
+        InOrder events = inOrder(jobEventService);
+        events.verify(jobEventService).publish(job, JobStatus.SENDING, 0, null);
+        events.verify(jobEventService).publish(job, JobStatus.PRINTED, 1, null);
+        assertEquals(1, meterRegistry.get("smartprint.dispatch").tags("printer", "3", "outcome", "printed").timer().count());
+    }
+
+    @Test
+    void dispatch_requeuesWithBackoffOnFailure() {
+        PrintJob job = job(1);
+        doThrow(new RuntimeException("timeout")).when(printService).sendToPrinter(job);
+
+        Instant before = Instant.now();
+        dispatcher.dispatch(7L);
+
+        ArgumentCaptor<Instant> retryAt = ArgumentCaptor.forClass(Instant.class);
+        verify(printJobRepository).recordAttempt(eq(7L), eq("node-a"), eq(JobStatus.QUEUED), eq(2), retryAt.capture(), eq("timeout"));
+        assertFalse(retryAt.getValue().isBefore(before.plusMillis(2000)));
+        verify(printerLoadService, never()).jobFinished(any(), anyInt(), anyLong());
+        verify(jobEventService).publish(job, JobStatus.QUEUED, 2, "timeout");
+        verifyNoInteractions(fileStorageService);
+    }
+
+    @Test
+    void dispatch_failsAfterMaxAttempts() {
+        PrintJob job = job(2);
+        doThrow(new RuntimeException("refused")).when(printService).sendToPrinter(job);
+
+        dispatcher.dispatch(7L);
+
+        verify(printerHealthService).recordFailure(3L);
+        verify(printJobRepository).recordAttempt(7L, "node-a", JobStatus.FAILED, 3, null, "refused");
+        verify(printerLoadService).jobFinished(3L, 0, -1);
+        verify(fileStorageService).releaseJobFiles(List.of("ab/cd/abcd"));
+        assertEquals(1, meterRegistry.get("smartprint.dispatch").tags("printer", "3", "outcome", "failed").timer().count());
+    }
+
+    @Test
+    void backoff_doublesUpToCap() {
+        assertEquals(Duration.ofMillis(1000), dispatcher.backoff(1));
+        assertEquals(Duration.ofMillis(4000), dispatcher.backoff(3));
+        assertEquals(Duration.ofMillis(5000), dispatcher.backoff(10));
+    }
+
+    @Test
+    void poll_holdsJobsWhileCircuitIsOpen() {
+        when(printJobRepository.findPrinterIdsWithDueJobs(eq(JobStatus.QUEUED), any())).thenReturn(List.of(3L));
+        when(printerHealthService.dispatchPermits(3L)).thenReturn(0);
+
+        dispatcher.poll();
+
+        verify(jobLeaseService, never()).claim(any(), anyInt(), any());
+    }
+
+    @Test
+    void dispatch_skipsJobWhoseLeaseMovedToAnotherNode() {
+        PrintJob job = job(0);
+        job.setLeaseOwner("node-b");
+
+        dispatcher.dispatch(7L);
+
+        verifyNoInteractions(printService, jobEventService);
+        verify(printJobRepository, never()).recordAttempt(any(), any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void dispatch_dropsOutcomeWhenLeaseWasLostMidSend() {
+        PrintJob job = job(0);
+        when(printJobRepository.recordAttempt(any(), any(), any(), anyInt(), any(), any())).thenReturn(0);
+
+        dispatcher.dispatch(7L);
+
+        verify(printService).sendToPrinter(job);
+        verify(jobEventService, never()).publish(any(), eq(JobStatus.PRINTED), anyInt(), any());
+        verifyNoInteractions(printerLoadService, fileStorageService);
+    }
+
+    @Test
+    void dispatch_retriesRecordingAJobThePrinterTook() {
+        PrintJob job = job(0);
+        ReflectionTestUtils.setField(dispatcher, "backoffBaseMs", 10L);
+        when(printJobRepository.recordAttempt(7L, "node-a", JobStatus.PRINTED, 1, null, null))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(1);
+
+        dispatcher.dispatch(7L);
+
+        verify(printService).sendToPrinter(job);
+        verify(printJobRepository, times(3)).recordAttempt(7L, "node-a", JobStatus.PRINTED, 1, null, null);
+        verify(printJobRepository, never()).recordAttempt(any(), any(), eq(JobStatus.QUEUED), anyInt(), any(), any());
+        verify(printerHealthService, never()).recordFailure(any());
+        verify(jobEventService).publish(job, JobStatus.PRINTED, 1, null);
+        // the lease was renewed throughout and is only let go once the outcome is on record
+        InOrder settled = inOrder(printJobRepository, jobLeaseService);
+        settled.verify(printJobRepository, times(3)).recordAttempt(7L, "node-a", JobStatus.PRINTED, 1, null, null);
+        settled.verify(jobLeaseService).finished(7L);
+        assertEquals(1, meterRegistry.get("smartprint.dispatch").tags("printer", "3", "outcome", "printed").timer().count());
+        assertNull(meterRegistry.find("smartprint.dispatch").tags("outcome", "failed").timer());
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.storage.LocalBlobStore;
+import com.example.smartprint.storage.S3BlobStore;
+import com.example.smartprint.support.StubPrintServer;
+import com.example.smartprint.support.StubS3Server;
+import com.example.smartprint.support.TestPdfs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrintServiceTest {
+
+    private static final long FILE_SIZE = 300L * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private HttpClient httpClient;
+    private PrintService printService;
+
+    @BeforeEach
+    void setup() {
+        // the same shape as AppConfig's client: one selector thread and a two-thread completion pool
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(2, Thread.ofPlatform().daemon(true).factory()))
+                .build();
+        printService = new PrintService(httpClient, new LocalBlobStore(tempDir), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(printService, "readTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(printService, "minBytesPerSecond", 1024L * 1024);
+        ReflectionTestUtils.setField(printService, "maxConcurrentPerPrinter", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClient.close();
+    }
+
+    // files written straight into the temp dir are blobs of a store rooted there
+    private static String key(Path file) {
+        return file.getFileName().toString();
+    }
+
+    private static List<String> keys(List<Path> files) {
+        return files.stream().map(PrintServiceTest::key).toList();
+    }
+
+    // bytes allocated by every live platform thread; the transfer runs on the client's threads, not the caller's
+    private static long allocatedByAllThreads(com.sun.management.ThreadMXBean threads) {
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    @Test
+    void sendFile_streamsLargeFileWithFlatHeap() throws Exception {
+        Path file = tempDir.resolve("scan.pdf");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(FILE_SIZE);
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        try (StubPrintServer stub = new StubPrintServer()) {
+            long before = allocatedByAllThreads(threads);
+            printService.sendFile(stub.endpoint(), key(file));
+            long allocated = allocatedByAllThreads(threads) - before;
+
+            assertEquals(FILE_SIZE, stub.bytesReceived());
+            // A buffered upload would allocate at least the 300MB file; streaming stays in the low megabytes
+            assertTrue(allocated < 16L * 1024 * 1024, "allocated " + allocated + " bytes for a 300MB transfer");
+        }
+    }
+
+    @Test
+    void sendFile_failsWhenPrinterAnswersWithError() throws Exception {
+        Path file = tempDir.resolve("handout.pdf");
+        Files.writeString(file, TestPdfs.pdf(1));
+
+        try (StubPrintServer stub = new StubPrintServer(StubPrintServer.Behavior.NORMAL.withErrorRate(1))) {
+            assertThrows(RuntimeException.class, () -> printService.sendFile(stub.endpoint(), key(file)));
+            assertEquals(1, stub.failures());
+        }
+    }
+
+    private List<Path> handouts(int count) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = tempDir.resolve("handout-" + i + ".pdf");
+            Files.writeString(file, TestPdfs.pdf(1 + i % 3));
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    void sendBatch_sendsWholeJobInOneRequest() throws Exception {
+        List<Path> files = handouts(40);
+        long fileBytes = 0;
+        for (Path file : files) {
+            fileBytes += Files.size(file);
+        }
+        // every request costs the Pi 20ms, as spooling a job does on the real thing
+        StubPrintServer.Behavior pi = StubPrintServer.Behavior.NORMAL.withLatencyMs(20);
+        try (StubPrintServer warmup = new StubPrintServer()) {
+            printService.sendFile(warmup.endpoint(), key(files.get(0)));
+            printService.sendBatch(warmup.endpoint() + "/batch", 1L, keys(files.subList(0, 2)));
+        }
+
+        try (StubPrintServer stub = new StubPrintServer(pi)) {
+            long start = System.nanoTime();
+            for (Path file : files) {
+                printService.sendFile(stub.endpoint(), key(file));
+            }
+            long perFileNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long sent = printService.sendBatch(stub.endpoint() + "/batch", 7L, keys(files));
+            long batchNanos = System.nanoTime() - start;
+
+            assertEquals(41, stub.requests());
+            assertEquals(80, stub.filesReceived());
+            assertEquals(fileBytes * 2 + (sent - fileBytes), stub.bytesReceived());
+            assertTrue(batchNanos * 3 < perFileNanos, "40 files: one batch " + batchNanos / 1_000_000
+                    + "ms vs one request per file " + perFileNanos / 1_000_000 + "ms");
+        }
+    }
+
+    @Test
+    void sendBatch_failsAsAWholeWhenPrinterRejectsIt() throws Exception {
+        List<Path> files = handouts(3);
+
+        try (StubPrintServer stub = new StubPrintServer(StubPrintServer.Behavior.NORMAL.withErrorRate(1))) {
+            assertThrows(RuntimeException.class,
+                    () -> printService.sendBatch(stub.endpoint() + "/batch", 7L, keys(files)));
+            assertEquals(1, stub.failures());
+            assertEquals(0, stub.filesReceived());
+        }
+    }
+
+    @Test
+    void sendFileAndBatch_streamFromAnObjectStore() throws Exception {
+        List<Path> files = handouts(3);
+        Path bucket = Files.createDirectories(tempDir.resolve("bucket"));
+        try (StubS3Server s3 = new StubS3Server(bucket);
+             S3BlobStore objectStore = new S3BlobStore(URI.create(s3.endpoint()), "documents", StubS3Server.REGION,
+                     StubS3Server.ACCESS_KEY, StubS3Server.SECRET_KEY, "blobs/", Duration.ofSeconds(2), Duration.ofSeconds(10));
+             StubPrintServer stub = new StubPrintServer(StubPrintServer.Behavior.NORMAL,
+                     Thread.ofPlatform().daemon(true).factory())) {
+            long fileBytes = 0;
+            for (Path file : files) {
+                objectStore.put(key(file), file);
+                fileBytes += Files.size(file);
+            }
+            PrintService fromObjectStore = new PrintService(httpClient, objectStore, new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(fromObjectStore, "readTimeoutMs", 10_000L);
+            ReflectionTestUtils.setField(fromObjectStore, "minBytesPerSecond", 1024L * 1024);
+            ReflectionTestUtils.setField(fromObjectStore, "maxConcurrentPerPrinter", 4);
+            long single = fromObjectStore.sendFile(stub.endpoint(), key(files.get(0)));
+            long sent = fromObjectStore.sendBatch(stub.endpoint() + "/batch", 7L, keys(files));
+
+            assertEquals(Files.size(files.get(0)), single);
+            assertTrue(sent > fileBytes);
+            assertEquals(4, stub.filesReceived());
+            assertEquals(single + sent, stub.bytesReceived());
+        }
+    }
+
+    // one virtual thread per send, the way dispatch workers call the service
+    private List<Thread> startSends(int count, String endpoint, String key) {
+        List<Thread> sends = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sends.add(Thread.ofVirtual().start(() -> printService.sendFile(endpoint, key)));
+        }
+        return sends;
+    }
+
+    /**
+     * Every in-flight send parks its virtual thread on the network: going from 10 to 300
+     * concurrent sends must not grow the JVM's platform threads.
+     */
+    @Test
+    void sendFile_keepsThreadCountFlatAsConcurrencyGrows() throws Exception {
+        Path file = tempDir.resolve("handout.pdf");
+        Files.writeString(file, TestPdfs.pdf(1));
+        ReflectionTestUtils.setField(printService, "maxConcurrentPerPrinter", 1000);
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        try (StubPrintServer stub = new StubPrintServer(StubPrintServer.Behavior.NORMAL.withLatencyMs(500))) {
+            // the first round starts the JDK's one-off poller threads for virtual-thread I/O
+            int[] concurrency = {50, 10, 300};
+            int[] peaks = new int[concurrency.length];
+            for (int round = 0; round < concurrency.length; round++) {
+                List<Thread> sends = startSends(concurrency[round], stub.endpoint(), key(file));
+                int peak = 0;
+                while (sends.stream().anyMatch(Thread::isAlive)) {
+                    peak = Math.max(peak, threads.getThreadCount());
+                    Thread.sleep(20);
+                }
+                peaks[round] = peak;
+            }
+
+            assertEquals(360, stub.filesReceived());
+            assertTrue(stub.maxInFlight() >= 250, "only " + stub.maxInFlight() + " sends were in flight together");
+            assertTrue(peaks[2] <= peaks[1] + 1, "platform threads grew from " + peaks[1]
+                    + " with 10 sends in flight to " + peaks[2] + " with 300");
+        }
+    }
+
+    @Test
+    void sendFile_capsRequestsPerPrinter() throws Exception {
+        Path file = tempDir.resolve("handout.pdf");
+        Files.writeString(file, TestPdfs.pdf(1));
+
+        try (StubPrintServer stub = new StubPrintServer(StubPrintServer.Behavior.NORMAL.withLatencyMs(50))) {
+            for (Thread send : startSends(40, stub.endpoint(), key(file))) {
+                send.join();
+            }
+
+            assertEquals(40, stub.filesReceived());
+            assertEquals(4, stub.maxInFlight());
+        }
+    }
+}
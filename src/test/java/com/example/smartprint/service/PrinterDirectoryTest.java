@@ -0,0 +1,121 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.controller.PrinterController;
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import com.example.smartprint.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PrinterDirectoryTest {
+
+    @Mock private PrinterRepository printerRepository;
+    @Mock private PrintJobRepository printJobRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private JobEventService jobEventService;
+    @Mock private UserService userService;
+
+    private final List<Printer> fleet = new ArrayList<>();
+    private PrinterHealthService health;
+    private PrinterDirectory directory;
+    private PrinterService printerService;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        fleet.add(printer(1L, "Library"));
+        fleet.add(printer(2L, "Lab"));
+        when(printerRepository.findAll()).thenAnswer(invocation -> List.copyOf(fleet));
+        when(printerRepository.save(any(Printer.class))).thenAnswer(invocation -> {
+            fleet.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        health = new PrinterHealthService(printerRepository, 1);
+        ReflectionTestUtils.setField(health, "failureThreshold", 1);
+        ReflectionTestUtils.setField(health, "openMs", 60_000L);
+        directory = new PrinterDirectory(printerRepository, health);
+        printerService = new PrinterService(printerRepository, printJobRepository, userRepository, jobEventService, directory);
+        mvc = MockMvcBuilders.standaloneSetup(new PrinterController(printerService, userService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        health.shutdown();
+    }
+
+    private static Printer printer(long id, String name) {
+        Printer printer = new Printer();
+        ReflectionTestUtils.setField(printer, "id", id);
+        ReflectionTestUtils.setField(printer, "name", name);
+        ReflectionTestUtils.setField(printer, "ipAddress", "127.0.0." + id);
+        return printer;
+    }
+
+    private String fetch() throws Exception {
+        return mvc.perform(get("/api/printers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].name").value("Lab"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void unchangedDirectoryAnswers304WithoutTheDatabase() throws Exception {
+        String etag = fetch();
+        assertTrue(etag.startsWith("W/\""), etag);
+
+        mvc.perform(get("/api/printers").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        // a probe that only refreshes latency keeps the tag
+        health.recordSuccess(1L);
+        mvc.perform(get("/api/printers").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        verify(printerRepository, times(1)).findAll();
+    }
+
+    @Test
+    void addedPrinterOrTrippedCircuitChangesTheTag() throws Exception {
+        String first = fetch();
+
+        printerService.addPrinter(printer(3L, "Office"), 5L);
+        String added = fetch();
+        assertNotEquals(first, added);
+
+        health.recordFailure(2L);
+        mvc.perform(get("/api/printers").header(HttpHeaders.IF_NONE_MATCH, added))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].circuit").value("OPEN"))
+                .andExpect(jsonPath("$[2].name").value("Office"));
+    }
+
+    @Test
+    void refreshKeepsTheVersionWhileTheFleetIsUnchanged() throws Exception {
+        String etag = fetch();
+
+        directory.refresh();
+        assertEquals(etag, directory.etag());
+
+        ReflectionTestUtils.setField(fleet.get(0), "costPerPage", 0.2);
+        directory.refresh();
+        assertNotEquals(etag, directory.etag());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.repository.PrinterRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static com.example.smartprint.service.PrinterHealthService.CircuitState.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PrinterHealthServiceTest {
+
+    private PrinterHealthService health;
+
+    @BeforeEach
+    void setup() {
+        health = new PrinterHealthService(mock(PrinterRepository.class), 1);
+        ReflectionTestUtils.setField(health, "connectTimeoutMs", 200);
+        ReflectionTestUtils.setField(health, "failureThreshold", 2);
+        ReflectionTestUtils.setField(health, "openMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        health.shutdown();
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailures() {
+        health.recordFailure(1L);
+        assertEquals(Integer.MAX_VALUE, health.dispatchPermits(1L));
+
+        health.recordFailure(1L);
+        assertEquals(OPEN, health.health(1L).circuit());
+        assertEquals(0, health.dispatchPermits(1L));
+    }
+
+    @Test
+    void halfOpenAllowsSingleTrialThenCloses() {
+        ReflectionTestUtils.setField(health, "openMs", 0L);
+        health.recordFailure(1L);
+        health.recordFailure(1L);
+
+        assertEquals(1, health.dispatchPermits(1L));
+        health.recordDispatchStarted(1L);
+        assertEquals(0, health.dispatchPermits(1L));
+
+        health.recordSuccess(1L);
+        assertEquals(CLOSED, health.health(1L).circuit());
+    }
+
+    @Test
+    void failedTrialReopensCircuit() {
+        ReflectionTestUtils.setField(health, "openMs", 0L);
+        health.recordFailure(1L);
+        health.recordFailure(1L);
+        health.dispatchPermits(1L);
+        health.recordDispatchStarted(1L);
+
+        ReflectionTestUtils.setField(health, "openMs", 60_000L);
+        health.recordFailure(1L);
+        assertEquals(OPEN, health.health(1L).circuit());
+    }
+
+    @Test
+    void unreachablePrinterIsMarkedDown() {
+        // TEST-NET-1 address, never routable
+        health.probe(5L, "192.0.2.1");
+        assertEquals(PrinterHealthService.Status.DOWN, health.health(5L).status());
+        assertEquals(PrinterHealthService.Status.UNKNOWN, health.health(6L).status());
+    }
+}
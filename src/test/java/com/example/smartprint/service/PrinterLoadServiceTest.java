@@ -0,0 +1,192 @@
+package com.example.smartprint.service;
+
+import com.example.smartprint.persistent.Printer;
+import com.example.smartprint.repository.PrintJobRepository;
+import com.example.smartprint.repository.PrinterRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PrinterLoadServiceTest {
+
+    private static final double SECONDS_PER_PAGE = 2;
+
+    @Mock private PrinterRepository printerRepository;
+    @Mock private PrintJobRepository printJobRepository;
+    @Mock private PrinterHealthService printerHealthService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Printer> fleet = new ArrayList<>();
+    private PrinterLoadService loadService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(printerRepository.findAll()).thenAnswer(invocation -> List.copyOf(fleet));
+        when(printerRepository.findById(anyLong())).thenAnswer(invocation -> fleet.stream()
+                .filter(printer -> printer.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+        PrinterDirectory directory = new PrinterDirectory(printerRepository, printerHealthService);
+        loadService = new PrinterLoadService(printerRepository, printJobRepository, directory, meterRegistry);
+        ReflectionTestUtils.setField(loadService, "secondsPerPage", SECONDS_PER_PAGE);
+        ReflectionTestUtils.setField(loadService, "costWeightSeconds", 60.0);
+        ReflectionTestUtils.setField(loadService, "locationPenaltySeconds", 300.0);
+        when(printerHealthService.health(any())).thenReturn(new PrinterHealthService.Health(
+                PrinterHealthService.Status.UP, 5, Instant.now(), PrinterHealthService.CircuitState.CLOSED));
+    }
+
+    private static Printer printer(long id, String location, double costPerPage) {
+        Printer printer = new Printer();
+        ReflectionTestUtils.setField(printer, "id", id);
+        ReflectionTestUtils.setField(printer, "location", location);
+        ReflectionTestUtils.setField(printer, "costPerPage", costPerPage);
+        return printer;
+    }
+
+    @Test
+    void selectPrinter_prefersLeastLoaded() {
+        fleet.addAll(List.of(printer(1, "Library", 0.1), printer(2, "Lab", 0.1)));
+        loadService.jobQueued(1L, 40);
+
+        assertEquals(2L, loadService.selectPrinter(null).getId());
+        // the fleet is listed from the directory, not re-read per submission
+        loadService.selectPrinter(null);
+        verify(printerRepository, times(1)).findAll();
+    }
+
+    @Test
+    void selectPrinter_prefersLocationUntilItsQueueOutweighsTheWalk() {
+        fleet.addAll(List.of(printer(1, "Library", 0.1), printer(2, "Lab", 0.1)));
+        loadService.jobQueued(1L, 100);   // 200s of printing, less than the 300s penalty
+        assertEquals(1L, loadService.selectPrinter("library").getId());
+
+        loadService.jobQueued(1L, 100);
+        assertEquals(2L, loadService.selectPrinter("library").getId());
+    }
+
+    @Test
+    void selectPrinter_skipsPrintersWithOpenCircuit() {
+        fleet.addAll(List.of(printer(1, "Library", 0.1), printer(2, "Lab", 0.1)));
+        loadService.jobQueued(2L, 50);
+        when(printerHealthService.health(1L)).thenReturn(new PrinterHealthService.Health(
+                PrinterHealthService.Status.UP, 5, Instant.now(), PrinterHealthService.CircuitState.OPEN));
+
+        assertEquals(2L, loadService.selectPrinter(null).getId());
+
+        when(printerHealthService.health(2L)).thenReturn(new PrinterHealthService.Health(
+                PrinterHealthService.Status.DOWN, -1, Instant.now(), PrinterHealthService.CircuitState.CLOSED));
+        assertThrows(RuntimeException.class, () -> loadService.selectPrinter(null));
+    }
+
+    @Test
+    void seed_loadsOutstandingJobsAndFinishReleasesThem() {
+        when(printJobRepository.countOutstandingByPrinter(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3L, 30L}));
+        loadService.seed();
+        assertEquals(new PrinterLoadService.LoadSnapshot(3, 30, 0), loadService.snapshot(1L));
+
+        loadService.jobFinished(1L, 10, 400);
+        loadService.jobFinished(1L, 10, 800);
+        PrinterLoadService.LoadSnapshot load = loadService.snapshot(1L);
+        assertEquals(1, load.queuedJobs());
+        assertEquals(10, load.pagesOutstanding());
+        assertEquals(480, load.dispatchLatencyMs(), 0.001);
+        assertEquals(1, meterRegistry.get("smartprint.printer.queue.jobs").tag("printer", "1").gauge().value());
+    }
+
+    @Test
+    void seed_picksUpJobsQueuedAndFinishedOnOtherNodes() {
+        when(printJobRepository.countOutstandingByPrinter(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3L, 30L}));
+        loadService.seed();
+        loadService.jobQueued(2L, 5);
+
+        // another node printed everything on printer 1 and queued two jobs for printer 3
+        when(printJobRepository.countOutstandingByPrinter(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{2L, 1L, 5L}, new Object[]{3L, 2L, 4L}));
+        loadService.seed();
+
+        assertEquals(new PrinterLoadService.LoadSnapshot(0, 0, 0), loadService.snapshot(1L));
+        assertEquals(new PrinterLoadService.LoadSnapshot(1, 5, 0), loadService.snapshot(2L));
+        assertEquals(new PrinterLoadService.LoadSnapshot(2, 4, 0), loadService.snapshot(3L));
+    }
+
+    @Test
+    void seed_keepsJobsQueuedWhileTheRecountRuns() {
+        loadService.jobQueued(1L, 10);
+        // the recount still sees one job; a second is queued here before it returns
+        when(printJobRepository.countOutstandingByPrinter(anyCollection())).thenAnswer(invocation -> {
+            loadService.jobQueued(1L, 20);
+            return List.<Object[]>of(new Object[]{1L, 1L, 10L});
+        });
+        loadService.seed();
+
+        assertEquals(new PrinterLoadService.LoadSnapshot(2, 30, 0), loadService.snapshot(1L));
+    }
+
+    /**
+     * Discrete-event simulation of a busy hour: jobs arrive at random, each printer prints
+     * one job at a time. Everyone sending to the library printer is compared with auto selection.
+     */
+    @Test
+    void simulation_autoSelectionReducesMeanWait() {
+        List<PrinterLoadService.Candidate> fleet = List.of(
+                new PrinterLoadService.Candidate(1L, 0.1, "Library"),
+                new PrinterLoadService.Candidate(2L, 0.1, "Lab"),
+                new PrinterLoadService.Candidate(3L, 0.1, "Hall"),
+                new PrinterLoadService.Candidate(4L, 0.1, "Cafeteria"));
+
+        double samePrinterWait = simulate(fleet, loads -> 1L);
+        double autoWait = simulate(fleet, loads -> loads.choose(fleet, null));
+
+        assertTrue(autoWait * 10 < samePrinterWait,
+                "auto " + autoWait + "s should be far below same-printer " + samePrinterWait + "s");
+    }
+
+    private record Completion(double at, long printerId, int pages) {
+    }
+
+    private double simulate(List<PrinterLoadService.Candidate> fleet, Function<PrinterLoadService, Long> chooser) {
+        PrinterLoadService loads = new PrinterLoadService(printerRepository, printJobRepository,
+                new PrinterDirectory(printerRepository, printerHealthService), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(loads, "secondsPerPage", SECONDS_PER_PAGE);
+        ReflectionTestUtils.setField(loads, "costWeightSeconds", 60.0);
+        ReflectionTestUtils.setField(loads, "locationPenaltySeconds", 300.0);
+
+        Random random = new Random(42);
+        double[] freeAt = new double[fleet.size() + 1];
+        PriorityQueue<Completion> completions = new PriorityQueue<>((a, b) -> Double.compare(a.at(), b.at()));
+        List<Double> waits = new ArrayList<>();
+        double now = 0;
+        for (int i = 0; i < 500; i++) {
+            now += -Math.log(1 - random.nextDouble()) * 4;   // one job every 4s on average
+            int pages = random.nextInt(10) < 9 ? 1 + random.nextInt(8) : 20 + random.nextInt(40);
+            while (!completions.isEmpty() && completions.peek().at() <= now) {
+                Completion done = completions.poll();
+                loads.jobFinished(done.printerId(), done.pages(), 0);
+            }
+
+            long printerId = chooser.apply(loads);
+            loads.jobQueued(printerId, pages);
+            double start = Math.max(now, freeAt[(int) printerId]);
+            freeAt[(int) printerId] = start + pages * SECONDS_PER_PAGE;
+            completions.add(new Completion(freeAt[(int) printerId], printerId, pages));
+            waits.add(start - now);
+        }
+        return waits.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    }
+}
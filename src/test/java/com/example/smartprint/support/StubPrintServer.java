@@ -0,0 +1,235 @@
+package com.example.smartprint.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Raspberry Pi print endpoint. It drains and counts
+ * every request body without keeping it, so tests can push very large files.
+ * A {@link Behavior} makes it slow, flaky or bandwidth-limited like a real Pi.
+ * {@code /print/batch} takes a whole job as multipart and acknowledges the file count.
+ */
+public class StubPrintServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Behavior behavior;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicInteger filesReceived = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * @param latencyMs       delay before answering, after the body has been read
+     * @param errorRate       fraction of requests answered with 500, between 0 and 1
+     * @param bytesPerSecond  cap on how fast the body is read, 0 for no cap
+     * @param readStallMs     pause before the first byte is read, so the client's writes back up
+     */
+    public record Behavior(long latencyMs, double errorRate, long bytesPerSecond, long readStallMs) {
+        public static final Behavior NORMAL = new Behavior(0, 0, 0, 0);
+
+        public Behavior withLatencyMs(long latencyMs) {
+            return new Behavior(latencyMs, errorRate, bytesPerSecond, readStallMs);
+        }
+
+        public Behavior withErrorRate(double errorRate) {
+            return new Behavior(latencyMs, errorRate, bytesPerSecond, readStallMs);
+        }
+
+        public Behavior withBytesPerSecond(long bytesPerSecond) {
+            return new Behavior(latencyMs, errorRate, bytesPerSecond, readStallMs);
+        }
+
+        public Behavior withReadStallMs(long readStallMs) {
+            return new Behavior(latencyMs, errorRate, bytesPerSecond, readStallMs);
+        }
+    }
+
+    public StubPrintServer() throws IOException {
+        this("127.0.0.1", 0, Behavior.NORMAL);
+    }
+
+    public StubPrintServer(Behavior behavior) throws IOException {
+        this("127.0.0.1", 0, behavior);
+    }
+
+    /**
+     * Bind to a fixed address, e.g. one loopback address per printer on port 5000 so a
+     * running SmartPrint instance reaches it like a real Pi.
+     */
+    public StubPrintServer(String host, int port, Behavior behavior) throws IOException {
+        // virtual threads, so the stub adds no platform threads however many requests it holds
+        this(host, port, behavior, Thread.ofVirtual().factory());
+    }
+
+    /**
+     * Serve on threads from {@code threads}. The JDK server's blocking reads pin a virtual
+     * thread to its carrier, so when the body is produced by another virtual thread in this
+     * JVM, a one-core host needs platform threads here to keep both moving.
+     */
+    public StubPrintServer(Behavior behavior, ThreadFactory threads) throws IOException {
+        this("127.0.0.1", 0, behavior, threads);
+    }
+
+    private StubPrintServer(String host, int port, Behavior behavior, ThreadFactory threads) throws IOException {
+        this.behavior = behavior;
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/print", exchange -> tracked(exchange, this::handlePrint));
+        server.createContext("/print/batch", exchange -> tracked(exchange, this::handleBatch));
+        executor = Executors.newThreadPerTaskExecutor(threads);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    private void tracked(HttpExchange exchange, HttpHandler handler) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            handler.handle(exchange);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void handlePrint(HttpExchange exchange) throws IOException {
+        long total = drain(exchange, null);
+        if (answer(exchange, total)) {
+            filesReceived.incrementAndGet();
+            exchange.sendResponseHeaders(200, -1);
+        }
+        exchange.close();
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+        int[] delimiters = new int[1];
+        long total = drain(exchange, ("--" + boundary).getBytes(StandardCharsets.US_ASCII), delimiters);
+        if (answer(exchange, total)) {
+            // delimiters: one before each part plus the closing one; the first part is the manifest
+            int files = delimiters[0] - 2;
+            filesReceived.addAndGet(files);
+            byte[] ack = ("{\"files\":" + files + "}").getBytes(StandardCharsets.US_ASCII);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, ack.length);
+            exchange.getResponseBody().write(ack);
+        }
+        exchange.close();
+    }
+
+    private long drain(HttpExchange exchange, byte[] delimiter) throws IOException {
+        return drain(exchange, delimiter, new int[1]);
+    }
+
+    // read and count the body, and how often the delimiter occurs in it, without keeping it
+    private long drain(HttpExchange exchange, byte[] delimiter, int[] delimiters) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int matched = 0;
+        try (InputStream body = exchange.getRequestBody()) {
+            pause(behavior.readStallMs());
+            long start = System.nanoTime();
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                for (int i = 0; delimiter != null && i < read; i++) {
+                    matched = buffer[i] == delimiter[matched] ? matched + 1 : (buffer[i] == delimiter[0] ? 1 : 0);
+                    if (matched == delimiter.length) {
+                        delimiters[0]++;
+                        matched = 0;
+                    }
+                }
+                total += read;
+                throttle(total, start);
+            }
+        }
+        return total;
+    }
+
+    // latency and error injection shared by both endpoints; true when the request succeeds
+    private boolean answer(HttpExchange exchange, long total) throws IOException {
+        pause(behavior.latencyMs());
+        requests.incrementAndGet();
+        if (behavior.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < behavior.errorRate()) {
+            failures.incrementAndGet();
+            exchange.sendResponseHeaders(500, -1);
+            return false;
+        }
+        bytesReceived.addAndGet(total);
+        return true;
+    }
+
+    // sleep until the bytes read so far fit under the configured rate
+    private void throttle(long total, long startNanos) {
+        if (behavior.bytesPerSecond() <= 0) {
+            return;
+        }
+        long dueNanos = total * 1_000_000_000L / behavior.bytesPerSecond();
+        long aheadMs = (dueNanos - (System.nanoTime() - startNanos)) / 1_000_000;
+        pause(aheadMs);
+    }
+
+    private static void pause(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String endpoint() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/print";
+    }
+
+    /**
+     * @return requests answered, successful or not
+     */
+    public int requests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the most requests the stub was handling at the same time
+     */
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public int failures() {
+        return failures.get();
+    }
+
+    /**
+     * @return documents in successfully answered requests, counting each file of a batch
+     */
+    public int filesReceived() {
+        return filesReceived.get();
+    }
+
+    /**
+     * @return body bytes of successfully answered requests
+     */
+    public long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.smartprint.support;
+
+import com.example.smartprint.storage.SigV4;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for an S3-compatible object store: path-style PUT, GET, HEAD and
+ * DELETE of objects, kept as files under a directory and streamed in both directions.
+ * Every request must carry a valid SigV4 signature for the configured credentials.
+ */
+public class StubS3Server implements AutoCloseable {
+    public static final String REGION = "us-east-1";
+    public static final String ACCESS_KEY = "stub-access";
+    public static final String SECRET_KEY = "stub-secret";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path root;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private volatile long pauseDownloadsAfter = -1;
+    private volatile CountDownLatch resume = new CountDownLatch(0);
+
+    public StubS3Server(Path root) throws IOException {
+        this.root = root;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        // platform threads, as the JDK server's blocking writes would pin a virtual thread to its carrier
+        executor = Executors.newCachedThreadPool(Thread.ofPlatform().name("stub-s3-", 0).daemon(true).factory());
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public int rejected() {
+        return rejected.get();
+    }
+
+    public boolean hasObject(String bucket, String key) {
+        return Files.exists(objectPath("/" + bucket + "/" + key));
+    }
+
+    /**
+     * Stop every download after {@code bytes} until {@link #resumeDownloads()}, to show
+     * a client gets to read the start of an object before the rest has been sent.
+     */
+    public void pauseDownloadsAfter(long bytes) {
+        resume = new CountDownLatch(1);
+        pauseDownloadsAfter = bytes;
+    }
+
+    public void resumeDownloads() {
+        pauseDownloadsAfter = -1;
+        resume.countDown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            if (!signatureMatches(exchange)) {
+                rejected.incrementAndGet();
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            Path object = objectPath(exchange.getRequestURI().getRawPath());
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    Files.createDirectories(object.getParent());
+                    Path temp = Files.createTempFile(object.getParent(), ".put-", ".tmp");
+                    try (InputStream body = exchange.getRequestBody()) {
+                        Files.copy(body, temp, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING);
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> {
+                    if (!Files.exists(object)) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.sendResponseHeaders(200, Files.size(object));
+                    try (InputStream in = Files.newInputStream(object); OutputStream out = exchange.getResponseBody()) {
+                        download(in, out);
+                    }
+                }
+                case "HEAD" -> {
+                    if (!Files.exists(object)) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(Files.size(object)));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "DELETE" -> {
+                    Files.deleteIfExists(object);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void download(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        long sent = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            long pauseAt = pauseDownloadsAfter;
+            if (pauseAt >= 0 && sent >= pauseAt) {
+                out.flush();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            out.write(buffer, 0, read);
+            sent += read;
+        }
+    }
+
+    // recompute the signature from what actually arrived, so a header the client altered after signing is caught
+    private static boolean signatureMatches(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String amzDate = exchange.getRequestHeaders().getFirst("x-amz-date");
+        String payloadHash = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (authorization == null || amzDate == null || payloadHash == null) {
+            return false;
+        }
+        int start = authorization.indexOf("SignedHeaders=") + "SignedHeaders=".length();
+        SortedMap<String, String> headers = new TreeMap<>();
+        for (String name : authorization.substring(start, authorization.indexOf(',', start)).split(";")) {
+            String value = exchange.getRequestHeaders().getFirst(name);
+            if (value == null) {
+                return false;
+            }
+            headers.put(name, value);
+        }
+        String expected = SigV4.authorization(exchange.getRequestMethod(), exchange.getRequestURI().getRawPath(),
+                "", headers, payloadHash, ACCESS_KEY, SECRET_KEY, REGION, "s3", amzDate);
+        return expected.equals(authorization);
+    }
+
+    private Path objectPath(String rawPath) {
+        return root.resolve(URLDecoder.decode(rawPath.substring(1), StandardCharsets.UTF_8).replace('/', '_'));
+    }
+
+    @Override
+    public void close() {
+        resumeDownloads();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.smartprint.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds minimal but structurally valid PDF documents for tests.
+ */
+public final class TestPdfs {
+
+    private TestPdfs() {
+    }
+
+    public static String pdf(int pages) {
+        StringBuilder kids = new StringBuilder();
+        List<String> objects = new ArrayList<>();
+        objects.add("<< /Type /Catalog /Pages 2 0 R >>");
+        objects.add(null);
+        for (int i = 0; i < pages; i++) {
+            kids.append(3 + i).append(" 0 R ");
+            objects.add("<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << /Font << /F1 9 0 R >> >> >>");
+        }
+        objects.set(1, "<< /Kids [" + kids + "] /Type /Pages /Count " + pages + " >>");
+
+        StringBuilder pdf = new StringBuilder("%PDF-1.4\n");
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            offsets.add(pdf.length());
+            pdf.append(i + 1).append(" 0 obj\n").append(objects.get(i)).append("\nendobj\n");
+        }
+        int xref = pdf.length();
+        pdf.append("xref\n0 ").append(objects.size() + 1).append("\n0000000000 65535 f\r\n");
+        for (int offset : offsets) {
+            pdf.append(String.format("%010d 00000 n\r\n", offset));
+        }
+        return pdf.append("trailer\n<< /Size ").append(objects.size() + 1).append(" /Root 1 0 R >>\n")
+                .append("startxref\n").append(xref).append("\n%%EOF\n").toString();
+    }
+
+    /** The offset the last startxref of a document built here points at, for chaining an update with /Prev. */
+    public static int startxref(String pdf) {
+        int keyword = pdf.lastIndexOf("startxref\n") + "startxref\n".length();
+        return Integer.parseInt(pdf.substring(keyword, pdf.indexOf('\n', keyword)));
+    }
+}
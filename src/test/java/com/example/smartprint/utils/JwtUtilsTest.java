@@ -0,0 +1,54 @@
+package com.example.smartprint.utils;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilsTest {
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setup() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secret", "smartprint-secret-key");
+        ReflectionTestUtils.setField(jwtUtils, "expirationMs", 60_000L);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 100);
+        jwtUtils.init();
+    }
+
+    @Test
+    void generatedTokenVerifiesToSubject() {
+        String token = jwtUtils.generateToken("a@b.com");
+        assertTrue(jwtUtils.validateToken(token));
+        assertEquals("a@b.com", jwtUtils.extractUsername(token));
+    }
+
+    @Test
+    void repeatedVerificationIsServedFromCache() {
+        String token = jwtUtils.generateToken("a@b.com");
+        for (int i = 0; i < 5; i++) {
+            assertEquals("a@b.com", jwtUtils.verifiedSubject(token));
+        }
+        assertEquals(1, jwtUtils.cacheMisses());
+        assertEquals(4, jwtUtils.cacheHits());
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtUtils.generateToken("a@b.com");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertNull(jwtUtils.verifiedSubject(tampered));
+        assertThrows(JwtException.class, () -> jwtUtils.extractUsername(tampered));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        ReflectionTestUtils.setField(jwtUtils, "expirationMs", -1_000L);
+        String token = jwtUtils.generateToken("a@b.com");
+        assertFalse(jwtUtils.validateToken(token));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.smartprint.utils;
+
+import com.example.smartprint.support.TestPdfs;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfPageCounterTest {
+
+    private static ByteBuffer bytes(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static String deflate(byte[] content) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(content);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[256];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    /** Appends an incremental update redefining one object, with an xref section chained to the previous one. */
+    private static String update(String base, int number, String body) {
+        String object = number + " 0 obj\n" + body + "\nendobj\n";
+        return base + object + "xref\n" + number + " 1\n" + String.format("%010d 00000 n\r\n", base.length())
+                + "trailer\n<< /Size 30 /Root 1 0 R /Prev " + TestPdfs.startxref(base) + " >>\n"
+                + "startxref\n" + (base.length() + object.length()) + "\n%%EOF\n";
+    }
+
+    /** Points the last startxref into the header, as a file truncated and re-saved by a careless tool might. */
+    private static String breakStartxref(String doc) {
+        int keyword = doc.lastIndexOf("startxref\n") + "startxref\n".length();
+        return doc.substring(0, keyword) + "3" + doc.substring(doc.indexOf('\n', keyword));
+    }
+
+    /** An object stream holding object 2 as the page tree root with the given count. */
+    private static String objectStream(int number, int pages) {
+        String tree = "<< /Type /Pages /Kids [3 0 R] /Count " + pages + " >>";
+        String header = "2 0 3 " + (tree.length() + 1) + " ";
+        String data = deflate((header + tree + " << /Type /Page /Parent 2 0 R >>").getBytes(StandardCharsets.ISO_8859_1));
+        return number + " 0 obj\n<< /Type /ObjStm /N 2 /First " + header.length() + " /Filter /FlateDecode /Length "
+                + data.length() + " >>\nstream\n" + data + "\nendstream\nendobj\n";
+    }
+
+    @Test
+    void countsPagesFromPageTreeRoot() {
+        assertEquals(5, PdfPageCounter.countPages(bytes(TestPdfs.pdf(5))));
+    }
+
+    @Test
+    void followsTheCatalogPastPageTreesItDoesNotUse() {
+        // object 6 is an orphaned tree left behind by an editor; only the catalog's /Pages counts
+        String doc = "%PDF-1.7\n"
+                + "1 0 obj\n<</Type/Catalog/Pages 2 0 R>>\nendobj\n"
+                + "2 0 obj\n<</Type/Pages/Kids[4 0 R 5 0 R]/Count 12>>\nendobj\n"
+                + "4 0 obj\n<</Type/Pages/Parent 2 0 R/Count 7>>\nendobj\n"
+                + "5 0 obj\n<</Type/Pages/Parent 2 0 R/Count 5>>\nendobj\n"
+                + "6 0 obj\n<</Type/Pages/Count 40>>\nendobj\n"
+                + "trailer\n<</Size 7/Root 1 0 R>>\n%%EOF\n";
+        assertEquals(12, PdfPageCounter.countPages(bytes(doc)));
+    }
+
+    @Test
+    void honoursIncrementalUpdates() {
+        String doc = update(TestPdfs.pdf(4), 2, "<< /Type /Pages /Kids [3 0 R 4 0 R 5 0 R] /Count 3 >>");
+        assertEquals(3, PdfPageCounter.countPages(bytes(doc)));
+    }
+
+    @Test
+    void readsPageTreeInsideCompressedObjectStream() {
+        String catalog = "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n";
+        String doc = "%PDF-1.5\n" + catalog;
+        int streamAt = doc.length();
+        doc += objectStream(7, 42);
+        int xrefAt = doc.length();
+
+        // rows of /W [1 2 1] for objects 0-8, each sent as the difference to the row above (PNG "Up")
+        int[][] rows = {{0, 0, 0}, {1, 9, 0}, {2, 7, 0}, {2, 7, 1}, {0, 0, 0}, {0, 0, 0}, {0, 0, 0},
+                {1, streamAt, 0}, {1, xrefAt, 0}};
+        byte[] encoded = new byte[rows.length * 5];
+        byte[] previous = new byte[4];
+        for (int r = 0; r < rows.length; r++) {
+            byte[] row = {(byte) rows[r][0], (byte) (rows[r][1] >> 8), (byte) rows[r][1], (byte) rows[r][2]};
+            encoded[r * 5] = 2;
+            for (int c = 0; c < 4; c++) {
+                encoded[r * 5 + 1 + c] = (byte) (row[c] - previous[c]);
+            }
+            previous = row;
+        }
+        String data = deflate(encoded);
+        doc += "8 0 obj\n<< /Type /XRef /Size 9 /W [1 2 1] /Root 1 0 R /Filter /FlateDecode"
+                + " /DecodeParms << /Columns 4 /Predictor 12 >> /Length " + data.length() + " >>\nstream\n" + data
+                + "\nendstream\nendobj\nstartxref\n" + xrefAt + "\n%%EOF\n";
+
+        assertEquals(42, PdfPageCounter.countPages(bytes(doc)));
+    }
+
+    @Test
+    void prefersAnUpdateInAnObjectStreamOverTheOriginalObject() {
+        // the update moves object 2 into object stream 20 and indexes it with cross-reference stream 21
+        String base = TestPdfs.pdf(4);
+        String stream = objectStream(20, 1);
+        int xrefAt = base.length() + stream.length();
+        int[][] rows = {{2, 20, 0}, {1, base.length(), 0}, {1, xrefAt, 0}};
+        StringBuilder table = new StringBuilder();
+        for (int[] row : rows) {
+            table.append((char) row[0]).append((char) 0).append((char) 0)
+                    .append((char) (row[1] >> 8)).append((char) (row[1] & 0xff)).append((char) row[2]);
+        }
+        String doc = base + stream + "21 0 obj\n<< /Type /XRef /Size 22 /Index [2 1 20 2] /W [1 4 1] /Root 1 0 R /Prev "
+                + TestPdfs.startxref(base) + " /Length " + table.length() + " >>\nstream\n" + table
+                + "\nendstream\nendobj\nstartxref\n" + xrefAt + "\n%%EOF\n";
+
+        assertEquals(1, PdfPageCounter.countPages(bytes(doc)));
+        // without usable cross-reference data the object stream still wins, being later in the file
+        assertEquals(1, PdfPageCounter.countPages(bytes(breakStartxref(doc))));
+    }
+
+    @Test
+    void ignoresObjectSyntaxInsideStreamData() {
+        String data = "\n2 0 obj\n<< /Type /Pages /Count 99 >>\nendobj\n";
+        String doc = update(TestPdfs.pdf(3), 10,
+                "<< /Type /XObject /Subtype /Image /Length " + data.length() + " >>\nstream\n" + data + "\nendstream");
+
+        assertEquals(3, PdfPageCounter.countPages(bytes(doc)));
+        assertEquals(3, PdfPageCounter.countPages(bytes(breakStartxref(doc))));
+    }
+
+    @Test
+    void scansTheFileWhenTheXrefPointsElsewhere() {
+        String doc = update(TestPdfs.pdf(4), 2, "<< /Type /Pages /Kids [3 0 R 4 0 R] /Count 2 >>");
+        assertEquals(2, PdfPageCounter.countPages(bytes(breakStartxref(doc))));
+    }
+
+    @Test
+    void rejectsDocumentWithoutTrailer() {
+        String doc = "%PDF-1.3\n<< /Type /Page >> << /Type/Page/Rotate 90 >> << /Type /Pages /Count 2 >>";
+        RuntimeException e = assertThrows(RuntimeException.class, () -> PdfPageCounter.countPages(bytes(doc)));
+        assertEquals("Not a readable PDF: no trailer", e.getMessage());
+    }
+
+    @Test
+    void rejectsCatalogWithoutPageTree() {
+        String doc = "%PDF-1.4\n1 0 obj\n<< /Type /Catalog >>\nendobj\ntrailer\n<< /Root 1 0 R >>\n%%EOF\n";
+        RuntimeException e = assertThrows(RuntimeException.class, () -> PdfPageCounter.countPages(bytes(doc)));
+        assertEquals("Not a readable PDF: no /Pages entry", e.getMessage());
+    }
+
+    @Test
+    void rejectsNonPdf() {
+        assertThrows(RuntimeException.class, () -> PdfPageCounter.countPages(bytes("hello world")));
+    }
+}